@@ -1,7 +1,9 @@
 package io.mincong.ocpjp.concurrent;
 
+import java.math.BigInteger;
 import java.util.Random;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.RecursiveTask;
 
 /**
@@ -22,14 +24,35 @@ public class CalcSum extends RecursiveTask<Integer> {
 
   private int endPos;
 
-  private CalcSum(int[] values) {
-    this(values, 0, values.length);
+  private int unitSize;
+
+  private LeafTracer tracer;
+
+  CalcSum(int[] values) {
+    this(values, LeafTracer.PRINT);
+  }
+
+  CalcSum(int[] values, LeafTracer tracer) {
+    this(values, UNIT_SIZE, tracer);
+  }
+
+  /**
+   * @param unitSize the maximum number of values summed sequentially
+   */
+  CalcSum(int[] values, int unitSize, LeafTracer tracer) {
+    this(values, 0, values.length, unitSize, tracer);
+    if (unitSize <= 0) {
+      throw new IllegalArgumentException("Unit size must be positive");
+    }
   }
 
-  private CalcSum(int[] values, int startPos, int endPos) {
+  private CalcSum(int[] values, int startPos, int endPos, int unitSize,
+      LeafTracer tracer) {
     this.values = values;
     this.startPos = startPos;
     this.endPos = endPos;
+    this.unitSize = unitSize;
+    this.tracer = tracer;
   }
 
   /**
@@ -40,7 +63,7 @@ public class CalcSum extends RecursiveTask<Integer> {
   @Override
   protected Integer compute() {
     final int currentSize = endPos - startPos;
-    if (currentSize <= UNIT_SIZE) {
+    if (currentSize <= unitSize) {
       return computeSum();
     }
     int center = currentSize / 2;
@@ -55,11 +78,12 @@ public class CalcSum extends RecursiveTask<Integer> {
      *    smaller tasks.
      */
     int leftEnd = startPos + center;
-    CalcSum leftSum = new CalcSum(values, startPos, leftEnd);
+    CalcSum leftSum = new CalcSum(values, startPos, leftEnd, unitSize, tracer);
     leftSum.fork();
 
-    int rightStart = startPos + center + 1;
-    CalcSum rightSum = new CalcSum(values, rightStart, endPos);
+    // `leftEnd` is exclusive, so the right part starts at it
+    int rightStart = leftEnd;
+    CalcSum rightSum = new CalcSum(values, rightStart, endPos, unitSize, tracer);
     /*
      * `leftSum.join()` waits until it returns a value; `compute()`
      * is main computation performed by task.
@@ -72,10 +96,99 @@ public class CalcSum extends RecursiveTask<Integer> {
     for (int i = startPos; i < endPos; i++) {
       sum += values[i];
     }
-    System.out.printf("Sum(%d-%d):%d%n", startPos, endPos, sum);
+    tracer.onLeaf(startPos, endPos, sum);
     return sum;
   }
 
+  /**
+   * Computes the sum of the values in the common pool, without
+   * tracing.
+   *
+   * @see #sum(int[], LeafTracer, ForkJoinPool)
+   */
+  public static int sum(int[] values) {
+    return sum(values, LeafTracer.NONE, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes the sum of the values: this is the production mode of
+   * {@link CalcSum}.
+   * <p>
+   * Printing the sum of each range dominates the computation, so it
+   * is only done by the given tracer, if any. The tasks store their
+   * sums in an {@code int} field instead of returning an
+   * {@link Integer}, so no value is boxed on join. And the ranges are
+   * much larger than {@link #UNIT_SIZE}: see
+   * {@link ParallelReduce#threshold(int, int)}.
+   */
+  public static int sum(int[] values, LeafTracer tracer, ForkJoinPool pool) {
+    int threshold = ParallelReduce.threshold(values.length, pool.getParallelism());
+    return sum(values, tracer, pool, threshold);
+  }
+
+  /**
+   * Computes the sum of the values, summing sequentially the ranges of
+   * at most {@code threshold} values.
+   */
+  static int sum(int[] values, LeafTracer tracer, ForkJoinPool pool,
+      int threshold) {
+    if (threshold <= 0) {
+      throw new IllegalArgumentException("Threshold must be positive");
+    }
+    SumAction action = new SumAction(values, 0, values.length, tracer, threshold);
+    pool.invoke(action);
+    return action.sum;
+  }
+
+  /**
+   * Computes the sum of the values in the common pool, as a
+   * {@code long}.
+   *
+   * @see #sumAsLong(int[], ForkJoinPool)
+   */
+  public static long sumAsLong(int[] values) {
+    return sumAsLong(values, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes the sum of the values as a {@code long}. Unlike
+   * {@link #sum(int[], LeafTracer, ForkJoinPool)}, the result cannot
+   * overflow: an array holds less than 2^31 values, each of them
+   * between -2^31 and 2^31, so the sum is between -2^62 and 2^62.
+   */
+  public static long sumAsLong(int[] values, ForkJoinPool pool) {
+    int threshold = ParallelReduce.threshold(values.length, pool.getParallelism());
+    LongSumAction action = new LongSumAction(values, 0, values.length, threshold);
+    pool.invoke(action);
+    return action.sum;
+  }
+
+  /**
+   * Computes the exact sum of the values in the common pool.
+   *
+   * @see #sumExact(long[], ForkJoinPool)
+   */
+  public static BigInteger sumExact(long[] values) {
+    return sumExact(values, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes the exact sum of the values, which may not fit in a
+   * {@code long}.
+   * <p>
+   * Each range is summed into a {@code long} using
+   * {@link Math#addExact(long, long)}, and only switches to a
+   * {@link BigInteger} when it overflows. The same goes for combining
+   * the sums of two ranges. So as long as the partial sums fit in a
+   * {@code long}, this is as fast as a plain {@code long} sum.
+   */
+  public static BigInteger sumExact(long[] values, ForkJoinPool pool) {
+    int threshold = ParallelReduce.threshold(values.length, pool.getParallelism());
+    ExactSumAction action = new ExactSumAction(values, 0, values.length, threshold);
+    pool.invoke(action);
+    return action.result();
+  }
+
   public static void main(String... args) {
     int[] intArray = new int[100];
     Random randomValues = new Random();
@@ -90,4 +203,182 @@ public class CalcSum extends RecursiveTask<Integer> {
     System.out.println(pool.invoke(calculator));
   }
 
+  /**
+   * Instrumentation hook, receiving the sum of each range computed
+   * sequentially.
+   */
+  @FunctionalInterface
+  public interface LeafTracer {
+
+    LeafTracer NONE = (startPos, endPos, sum) -> {};
+
+    LeafTracer PRINT = (startPos, endPos, sum) ->
+        System.out.printf("Sum(%d-%d):%d%n", startPos, endPos, sum);
+
+    void onLeaf(int startPos, int endPos, int sum);
+  }
+
+  private static class SumAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] values;
+
+    private final int startPos;
+
+    private final int endPos;
+
+    private final LeafTracer tracer;
+
+    private final int threshold;
+
+    private int sum;
+
+    private SumAction(int[] values, int startPos, int endPos,
+        LeafTracer tracer, int threshold) {
+      this.values = values;
+      this.startPos = startPos;
+      this.endPos = endPos;
+      this.tracer = tracer;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (endPos - startPos <= threshold) {
+        int s = 0;
+        for (int i = startPos; i < endPos; i++) {
+          s += values[i];
+        }
+        if (tracer != LeafTracer.NONE) {
+          tracer.onLeaf(startPos, endPos, s);
+        }
+        sum = s;
+        return;
+      }
+      int center = startPos + (endPos - startPos) / 2;
+      SumAction left = new SumAction(values, startPos, center, tracer, threshold);
+      SumAction right = new SumAction(values, center, endPos, tracer, threshold);
+      left.fork();
+      right.compute();
+      left.join();
+      sum = left.sum + right.sum;
+    }
+  }
+
+  private static class LongSumAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] values;
+
+    private final int startPos;
+
+    private final int endPos;
+
+    private final int threshold;
+
+    private long sum;
+
+    private LongSumAction(int[] values, int startPos, int endPos, int threshold) {
+      this.values = values;
+      this.startPos = startPos;
+      this.endPos = endPos;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (endPos - startPos <= threshold) {
+        long s = 0;
+        for (int i = startPos; i < endPos; i++) {
+          s += values[i];
+        }
+        sum = s;
+        return;
+      }
+      int center = startPos + (endPos - startPos) / 2;
+      LongSumAction left = new LongSumAction(values, startPos, center, threshold);
+      LongSumAction right = new LongSumAction(values, center, endPos, threshold);
+      left.fork();
+      right.compute();
+      left.join();
+      sum = left.sum + right.sum;
+    }
+  }
+
+  private static class ExactSumAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long[] values;
+
+    private final int startPos;
+
+    private final int endPos;
+
+    private final int threshold;
+
+    private long sum;
+
+    /**
+     * The sum of the range if it overflows a {@code long}, otherwise
+     * {@code null} and the sum is stored in {@link #sum}.
+     */
+    private BigInteger bigSum;
+
+    private ExactSumAction(long[] values, int startPos, int endPos, int threshold) {
+      this.values = values;
+      this.startPos = startPos;
+      this.endPos = endPos;
+      this.threshold = threshold;
+    }
+
+    private BigInteger result() {
+      return bigSum != null ? bigSum : BigInteger.valueOf(sum);
+    }
+
+    @Override
+    protected void compute() {
+      if (endPos - startPos <= threshold) {
+        computeSum();
+        return;
+      }
+      int center = startPos + (endPos - startPos) / 2;
+      ExactSumAction left = new ExactSumAction(values, startPos, center, threshold);
+      ExactSumAction right = new ExactSumAction(values, center, endPos, threshold);
+      left.fork();
+      right.compute();
+      left.join();
+      if (left.bigSum == null && right.bigSum == null) {
+        try {
+          sum = Math.addExact(left.sum, right.sum);
+          return;
+        } catch (ArithmeticException e) {
+          // Fall back to BigInteger
+        }
+      }
+      bigSum = left.result().add(right.result());
+    }
+
+    private void computeSum() {
+      long s = 0;
+      int i = startPos;
+      try {
+        for (; i < endPos; i++) {
+          s = Math.addExact(s, values[i]);
+        }
+        sum = s;
+        return;
+      } catch (ArithmeticException e) {
+        // Fall back to BigInteger from the value which overflowed
+      }
+      BigInteger big = BigInteger.valueOf(s);
+      for (; i < endPos; i++) {
+        big = big.add(BigInteger.valueOf(values[i]));
+      }
+      bigSum = big;
+    }
+  }
+
 }
@@ -0,0 +1,156 @@
+package io.mincong.ocpjp.concurrent;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Compares the fork-join computations of this package.
+ * <p>
+ * This is a simple harness rather than a JMH benchmark: each
+ * computation is warmed up, then the best time of several iterations
+ * is printed. It is good enough to compare orders of magnitude, run it
+ * on the target machine with a fixed heap size to get stable numbers.
+ * <p>
+ * Usage: {@code ForkJoinBenchmark [size] [iterations]}
+ *
+ * @author Mincong Huang
+ */
+public class ForkJoinBenchmark {
+
+  private static int iterations;
+
+  public static void main(String... args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+    int[] values = new Random(0).ints(size, 0, 10).toArray();
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    System.out.printf("size=%d, parallelism=%d%n", size, pool.getParallelism());
+
+    // CalcSum prints each leaf: the output is discarded, but it is
+    // still formatted, as in the original demo.
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new OutputStream() {
+      @Override
+      public void write(int b) {
+        // Discarded
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        // Discarded
+      }
+    }));
+    long printed;
+    try {
+      printed = measure(() -> pool.invoke(new CalcSum(values)));
+    } finally {
+      System.setOut(out);
+    }
+    report("CalcSum (printf, boxed)", printed);
+    report("CalcSum (no tracer, boxed)",
+        measure(() -> pool.invoke(new CalcSum(values, CalcSum.LeafTracer.NONE))));
+    report("CalcSum.sum (primitive)",
+        measure(() -> CalcSum.sum(values)));
+    report("CalcSum.sumAsLong",
+        measure(() -> (int) CalcSum.sumAsLong(values)));
+    long[] longs = new long[size];
+    for (int i = 0; i < size; i++) {
+      longs[i] = values[i];
+    }
+    report("CalcSum.sumExact (no overflow)",
+        measure(() -> CalcSum.sumExact(longs).intValue()));
+    report("Sequential loop", measure(() -> {
+      int sum = 0;
+      for (int v : values) {
+        sum += v;
+      }
+      return sum;
+    }));
+
+    // Sums across sizes and thresholds, to tune the threshold of the
+    // fork-join tasks: the adaptive one is computed from the size and
+    // the parallelism
+    System.out.println();
+    int[] thresholds = {1 << 8, 1 << 10, ParallelReduce.MIN_THRESHOLD, 1 << 16};
+    // Long, so that the size does not overflow when shifted past size
+    for (long m = 1 << 12; m <= size; m <<= 2) {
+      int n = (int) m;
+      int[] array = Arrays.copyOf(values, n);
+      for (int threshold : thresholds) {
+        report("CalcSum.sum, n=" + n + ", t=" + threshold, measure(() ->
+            CalcSum.sum(array, CalcSum.LeafTracer.NONE, pool, threshold)));
+      }
+      int adaptive = ParallelReduce.threshold(n, pool.getParallelism());
+      report("CalcSum.sum, n=" + n + ", t=" + adaptive + " (adaptive)",
+          measure(() -> CalcSum.sum(array)));
+    }
+
+    // Statistics, against a sequential summary and a full sort
+    System.out.println();
+    double[] doubles = new Random(0).doubles(size).toArray();
+    report("ParallelStats.summarize",
+        measure(() -> (int) ParallelStats.summarize(doubles).getVariance()));
+    report("DoubleSummaryStatistics", measure(() ->
+        (int) Arrays.stream(doubles).summaryStatistics().getAverage()));
+    report("ParallelStats.topK, k=100",
+        measure(() -> (int) ParallelStats.topK(doubles, 100)[0]));
+    report("Arrays.parallelSort then top 100", measure(() -> {
+      double[] sorted = doubles.clone();
+      Arrays.parallelSort(sorted);
+      return (int) sorted[sorted.length - 100];
+    }));
+
+    // Prefix sums, to find the size above which the parallel scan
+    // beats the sequential one
+    System.out.println();
+    for (long m = 1 << 12; m <= size; m <<= 2) {
+      int n = (int) m;
+      long[] source = new long[n];
+      long[] target = new long[n];
+      for (int i = 0; i < n; i++) {
+        source[i] = values[i];
+      }
+      report("PrefixSum sequential, n=" + n, measure(() -> {
+        PrefixSum.scan(source, target, pool, Integer.MAX_VALUE);
+        return (int) target[target.length - 1];
+      }));
+      report("PrefixSum parallel, n=" + n, measure(() -> {
+        PrefixSum.scan(source, target, pool, 0);
+        return (int) target[target.length - 1];
+      }));
+    }
+  }
+
+  /**
+   * Returns the best time of the computation, in nanoseconds.
+   */
+  private static long measure(IntSupplier computation) {
+    // Warm-up
+    int blackhole = 0;
+    for (int i = 0; i < iterations; i++) {
+      blackhole += computation.getAsInt();
+    }
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      blackhole += computation.getAsInt();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    // Prevents the computation from being eliminated
+    if (blackhole == 42) {
+      System.out.print("");
+    }
+    return best;
+  }
+
+  private static void report(String name, long nanos) {
+    System.out.printf("%-44s %10d us%n", name, TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+}
@@ -0,0 +1,290 @@
+package io.mincong.ocpjp.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Parallel reduction of arrays, a generalization of {@link CalcSum}.
+ * <p>
+ * The array is split in halves recursively, like {@link CalcSum},
+ * until a range is smaller than the threshold, then each range is
+ * reduced sequentially. The operator must be associative, and the
+ * identity must be its neutral element (e.g. 0 for a sum), since the
+ * ranges are reduced independently then combined.
+ * <p>
+ * Unlike {@link CalcSum}, the tasks extend {@link RecursiveAction}
+ * and store their result in a primitive field, so no value is boxed
+ * when joining the subtasks. The threshold is not fixed either: it is
+ * computed from the array length and the pool parallelism, see
+ * {@link #threshold(int, int)}.
+ *
+ * @author Mincong Huang
+ */
+public final class ParallelReduce {
+
+  /**
+   * Minimum number of elements reduced by a task. Below this value,
+   * the cost of forking a task exceeds the cost of the reduction.
+   */
+  static final int MIN_THRESHOLD = 1 << 13;
+
+  private ParallelReduce() {
+    // Utility class, do not instantiate
+  }
+
+  /**
+   * Computes the number of elements under which a range is reduced
+   * sequentially: about 4 tasks per thread of the pool, so that busy
+   * threads can steal work from each other, but no less than
+   * {@link #MIN_THRESHOLD}.
+   */
+  static int threshold(int length, int parallelism) {
+    return Math.max(length / (parallelism << 2), MIN_THRESHOLD);
+  }
+
+  public static int reduce(int[] values, int identity, IntBinaryOperator op) {
+    return reduce(values, identity, op, ForkJoinPool.commonPool());
+  }
+
+  public static int reduce(int[] values, int identity, IntBinaryOperator op,
+      ForkJoinPool pool) {
+    int threshold = threshold(values.length, pool.getParallelism());
+    IntTask task = new IntTask(values, 0, values.length, identity, op, threshold);
+    pool.invoke(task);
+    return task.result;
+  }
+
+  public static long reduce(long[] values, long identity, LongBinaryOperator op) {
+    return reduce(values, identity, op, ForkJoinPool.commonPool());
+  }
+
+  public static long reduce(long[] values, long identity, LongBinaryOperator op,
+      ForkJoinPool pool) {
+    int threshold = threshold(values.length, pool.getParallelism());
+    LongTask task = new LongTask(values, 0, values.length, identity, op, threshold);
+    pool.invoke(task);
+    return task.result;
+  }
+
+  public static double reduce(double[] values, double identity,
+      DoubleBinaryOperator op) {
+    return reduce(values, identity, op, ForkJoinPool.commonPool());
+  }
+
+  public static double reduce(double[] values, double identity,
+      DoubleBinaryOperator op, ForkJoinPool pool) {
+    int threshold = threshold(values.length, pool.getParallelism());
+    DoubleTask task = new DoubleTask(values, 0, values.length, identity, op, threshold);
+    pool.invoke(task);
+    return task.result;
+  }
+
+  public static <T> T reduce(T[] values, T identity, BinaryOperator<T> op) {
+    return reduce(values, identity, op, ForkJoinPool.commonPool());
+  }
+
+  public static <T> T reduce(T[] values, T identity, BinaryOperator<T> op,
+      ForkJoinPool pool) {
+    int threshold = threshold(values.length, pool.getParallelism());
+    ObjectTask<T> task = new ObjectTask<>(values, 0, values.length, identity, op, threshold);
+    pool.invoke(task);
+    return task.result;
+  }
+
+  private static class IntTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] values;
+
+    private final int startPos;
+
+    private final int endPos;
+
+    private final int identity;
+
+    private final IntBinaryOperator op;
+
+    private final int threshold;
+
+    private int result;
+
+    private IntTask(int[] values, int startPos, int endPos, int identity,
+        IntBinaryOperator op, int threshold) {
+      this.values = values;
+      this.startPos = startPos;
+      this.endPos = endPos;
+      this.identity = identity;
+      this.op = op;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (endPos - startPos <= threshold) {
+        int r = identity;
+        for (int i = startPos; i < endPos; i++) {
+          r = op.applyAsInt(r, values[i]);
+        }
+        result = r;
+        return;
+      }
+      int center = startPos + (endPos - startPos) / 2;
+      IntTask left = new IntTask(values, startPos, center, identity, op, threshold);
+      IntTask right = new IntTask(values, center, endPos, identity, op, threshold);
+      left.fork();
+      right.compute();
+      left.join();
+      result = op.applyAsInt(left.result, right.result);
+    }
+  }
+
+  private static class LongTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long[] values;
+
+    private final int startPos;
+
+    private final int endPos;
+
+    private final long identity;
+
+    private final LongBinaryOperator op;
+
+    private final int threshold;
+
+    private long result;
+
+    private LongTask(long[] values, int startPos, int endPos, long identity,
+        LongBinaryOperator op, int threshold) {
+      this.values = values;
+      this.startPos = startPos;
+      this.endPos = endPos;
+      this.identity = identity;
+      this.op = op;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (endPos - startPos <= threshold) {
+        long r = identity;
+        for (int i = startPos; i < endPos; i++) {
+          r = op.applyAsLong(r, values[i]);
+        }
+        result = r;
+        return;
+      }
+      int center = startPos + (endPos - startPos) / 2;
+      LongTask left = new LongTask(values, startPos, center, identity, op, threshold);
+      LongTask right = new LongTask(values, center, endPos, identity, op, threshold);
+      left.fork();
+      right.compute();
+      left.join();
+      result = op.applyAsLong(left.result, right.result);
+    }
+  }
+
+  private static class DoubleTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double[] values;
+
+    private final int startPos;
+
+    private final int endPos;
+
+    private final double identity;
+
+    private final DoubleBinaryOperator op;
+
+    private final int threshold;
+
+    private double result;
+
+    private DoubleTask(double[] values, int startPos, int endPos,
+        double identity, DoubleBinaryOperator op, int threshold) {
+      this.values = values;
+      this.startPos = startPos;
+      this.endPos = endPos;
+      this.identity = identity;
+      this.op = op;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (endPos - startPos <= threshold) {
+        double r = identity;
+        for (int i = startPos; i < endPos; i++) {
+          r = op.applyAsDouble(r, values[i]);
+        }
+        result = r;
+        return;
+      }
+      int center = startPos + (endPos - startPos) / 2;
+      DoubleTask left = new DoubleTask(values, startPos, center, identity, op, threshold);
+      DoubleTask right = new DoubleTask(values, center, endPos, identity, op, threshold);
+      left.fork();
+      right.compute();
+      left.join();
+      result = op.applyAsDouble(left.result, right.result);
+    }
+  }
+
+  private static class ObjectTask<T> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final T[] values;
+
+    private final int startPos;
+
+    private final int endPos;
+
+    private final T identity;
+
+    private final BinaryOperator<T> op;
+
+    private final int threshold;
+
+    private T result;
+
+    private ObjectTask(T[] values, int startPos, int endPos, T identity,
+        BinaryOperator<T> op, int threshold) {
+      this.values = values;
+      this.startPos = startPos;
+      this.endPos = endPos;
+      this.identity = identity;
+      this.op = op;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (endPos - startPos <= threshold) {
+        T r = identity;
+        for (int i = startPos; i < endPos; i++) {
+          r = op.apply(r, values[i]);
+        }
+        result = r;
+        return;
+      }
+      int center = startPos + (endPos - startPos) / 2;
+      ObjectTask<T> left = new ObjectTask<>(values, startPos, center, identity, op, threshold);
+      ObjectTask<T> right = new ObjectTask<>(values, center, endPos, identity, op, threshold);
+      left.fork();
+      right.compute();
+      left.join();
+      result = op.apply(left.result, right.result);
+    }
+  }
+
+}
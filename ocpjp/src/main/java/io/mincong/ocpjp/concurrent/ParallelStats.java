@@ -0,0 +1,469 @@
+package io.mincong.ocpjp.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BinaryOperator;
+
+/**
+ * Parallel statistics of primitive arrays: min, max, mean, variance
+ * and the top-K values.
+ * <p>
+ * Like {@link ParallelReduce}, the array is split in halves until a
+ * range is smaller than the threshold. Each range is then summarized
+ * in a partial state, in a single pass over its values, and the states
+ * of two sibling ranges are merged. So every value is read once, and
+ * the tasks do not share any state but the array.
+ * <p>
+ * The variance is computed with Welford's algorithm: each value
+ * updates the mean and the sum of squared differences to it. Two
+ * states are merged with the formula of Chan et al. Both are
+ * numerically stable, unlike the sum of squares minus the square of
+ * the sum.
+ *
+ * @author Mincong Huang
+ */
+public final class ParallelStats {
+
+  private ParallelStats() {
+    // Utility class, do not instantiate
+  }
+
+  public static DoubleSummary summarize(double[] values) {
+    return summarize(values, ForkJoinPool.commonPool());
+  }
+
+  public static DoubleSummary summarize(double[] values, ForkJoinPool pool) {
+    return invoke(values.length, pool,
+        (startPos, endPos) -> new DoubleSummary(values, startPos, endPos),
+        DoubleSummary::merge);
+  }
+
+  public static LongSummary summarize(long[] values) {
+    return summarize(values, ForkJoinPool.commonPool());
+  }
+
+  public static LongSummary summarize(long[] values, ForkJoinPool pool) {
+    return invoke(values.length, pool,
+        (startPos, endPos) -> new LongSummary(values, startPos, endPos),
+        LongSummary::merge);
+  }
+
+  public static long[] topK(long[] values, int k) {
+    return topK(values, k, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the {@code k} largest values, in descending order. If
+   * there are less than {@code k} values, all of them are returned.
+   * <p>
+   * Each range keeps its {@code k} largest values in a min-heap, whose
+   * root is the smallest of them: a value is only inserted if it is
+   * larger than the root, so most values are compared once. The values
+   * of two ranges are then merged like in a merge sort, keeping the
+   * first {@code k} ones.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static long[] topK(long[] values, int k, ForkJoinPool pool) {
+    checkK(k);
+    return invoke(values.length, pool,
+        (startPos, endPos) -> topK(values, startPos, endPos, k),
+        (a, b) -> merge(a, b, k));
+  }
+
+  public static double[] topK(double[] values, int k) {
+    return topK(values, k, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the {@code k} largest values, in descending order, using
+   * the order of {@link Double#compare(double, double)}.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @see #topK(long[], int, ForkJoinPool)
+   */
+  public static double[] topK(double[] values, int k, ForkJoinPool pool) {
+    checkK(k);
+    return invoke(values.length, pool,
+        (startPos, endPos) -> topK(values, startPos, endPos, k),
+        (a, b) -> merge(a, b, k));
+  }
+
+  private static void checkK(int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("K must not be negative: " + k);
+    }
+  }
+
+  private static <S> S invoke(int length, ForkJoinPool pool, RangeFunction<S> leaf,
+      BinaryOperator<S> merge) {
+    int threshold = ParallelReduce.threshold(length, pool.getParallelism());
+    RangeTask<S> task = new RangeTask<>(0, length, threshold, leaf, merge);
+    pool.invoke(task);
+    return task.result;
+  }
+
+  /**
+   * Returns the {@code k} largest values of the range, in descending
+   * order.
+   */
+  private static long[] topK(long[] values, int startPos, int endPos, int k) {
+    long[] heap = new long[Math.min(k, endPos - startPos)];
+    int size = 0;
+    for (int i = startPos; i < endPos; i++) {
+      long v = values[i];
+      if (size < heap.length) {
+        // Sift up
+        int child = size++;
+        while (child > 0) {
+          int parent = (child - 1) >>> 1;
+          if (heap[parent] <= v) {
+            break;
+          }
+          heap[child] = heap[parent];
+          child = parent;
+        }
+        heap[child] = v;
+      } else if (size > 0 && v > heap[0]) {
+        // Replace the root, then sift down
+        int parent = 0;
+        int child;
+        while ((child = (parent << 1) + 1) < size) {
+          if (child + 1 < size && heap[child + 1] < heap[child]) {
+            child++;
+          }
+          if (v <= heap[child]) {
+            break;
+          }
+          heap[parent] = heap[child];
+          parent = child;
+        }
+        heap[parent] = v;
+      }
+    }
+    Arrays.sort(heap);
+    for (int i = 0, j = heap.length - 1; i < j; i++, j--) {
+      long tmp = heap[i];
+      heap[i] = heap[j];
+      heap[j] = tmp;
+    }
+    return heap;
+  }
+
+  private static double[] topK(double[] values, int startPos, int endPos, int k) {
+    double[] heap = new double[Math.min(k, endPos - startPos)];
+    int size = 0;
+    for (int i = startPos; i < endPos; i++) {
+      double v = values[i];
+      if (size < heap.length) {
+        int child = size++;
+        while (child > 0) {
+          int parent = (child - 1) >>> 1;
+          if (Double.compare(heap[parent], v) <= 0) {
+            break;
+          }
+          heap[child] = heap[parent];
+          child = parent;
+        }
+        heap[child] = v;
+      } else if (size > 0 && Double.compare(v, heap[0]) > 0) {
+        int parent = 0;
+        int child;
+        while ((child = (parent << 1) + 1) < size) {
+          if (child + 1 < size && Double.compare(heap[child + 1], heap[child]) < 0) {
+            child++;
+          }
+          if (Double.compare(v, heap[child]) <= 0) {
+            break;
+          }
+          heap[parent] = heap[child];
+          parent = child;
+        }
+        heap[parent] = v;
+      }
+    }
+    Arrays.sort(heap);
+    for (int i = 0, j = heap.length - 1; i < j; i++, j--) {
+      double tmp = heap[i];
+      heap[i] = heap[j];
+      heap[j] = tmp;
+    }
+    return heap;
+  }
+
+  /**
+   * Merges two arrays sorted in descending order, keeping the first
+   * {@code k} values.
+   */
+  private static long[] merge(long[] a, long[] b, int k) {
+    long[] merged = new long[Math.min(k, a.length + b.length)];
+    int i = 0;
+    int j = 0;
+    for (int n = 0; n < merged.length; n++) {
+      if (j == b.length || i < a.length && a[i] >= b[j]) {
+        merged[n] = a[i++];
+      } else {
+        merged[n] = b[j++];
+      }
+    }
+    return merged;
+  }
+
+  private static double[] merge(double[] a, double[] b, int k) {
+    double[] merged = new double[Math.min(k, a.length + b.length)];
+    int i = 0;
+    int j = 0;
+    for (int n = 0; n < merged.length; n++) {
+      if (j == b.length || i < a.length && Double.compare(a[i], b[j]) >= 0) {
+        merged[n] = a[i++];
+      } else {
+        merged[n] = b[j++];
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Count, mean and variance of values, which can be merged with the
+   * ones of other values.
+   * <p>
+   * As {@link java.util.DoubleSummaryStatistics}, the mean and the
+   * variances of no value are zero.
+   */
+  public abstract static class Summary {
+
+    private long count;
+
+    private double mean;
+
+    /**
+     * The sum of squared differences to the mean.
+     */
+    private double m2;
+
+    Summary() {
+    }
+
+    /**
+     * Sets the moments of the values, computed with Welford's
+     * algorithm: for the n-th value x, {@code delta = x - mean},
+     * {@code mean += delta / n}, then {@code m2 += delta * (x - mean)}.
+     * The leaves keep the moments in local variables while iterating.
+     */
+    final void setMoments(long count, double mean, double m2) {
+      this.count = count;
+      this.mean = mean;
+      this.m2 = m2;
+    }
+
+    /**
+     * Merges the values of the other summary into this one, using the
+     * formula of Chan et al.
+     */
+    final void addAll(Summary other) {
+      if (other.count == 0) {
+        return;
+      }
+      long n = count + other.count;
+      double delta = other.mean - mean;
+      mean += delta * other.count / n;
+      m2 += other.m2 + delta * delta * count * other.count / n;
+      count = n;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public double getMean() {
+      return mean;
+    }
+
+    /**
+     * Returns the population variance.
+     */
+    public double getVariance() {
+      return count == 0 ? 0 : m2 / count;
+    }
+
+    /**
+     * Returns the sample variance, which is zero for less than two
+     * values.
+     */
+    public double getSampleVariance() {
+      return count < 2 ? 0 : m2 / (count - 1);
+    }
+
+    public double getStandardDeviation() {
+      return Math.sqrt(getVariance());
+    }
+  }
+
+  /**
+   * Summary of {@code double} values.
+   */
+  public static final class DoubleSummary extends Summary {
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    DoubleSummary(double[] values, int startPos, int endPos) {
+      double lo = min;
+      double hi = max;
+      long n = 0;
+      double mean = 0;
+      double m2 = 0;
+      for (int i = startPos; i < endPos; i++) {
+        double v = values[i];
+        lo = Math.min(lo, v);
+        hi = Math.max(hi, v);
+        double delta = v - mean;
+        mean += delta / ++n;
+        m2 += delta * (v - mean);
+      }
+      min = lo;
+      max = hi;
+      setMoments(n, mean, m2);
+    }
+
+    /**
+     * Merges the other summary into this one.
+     *
+     * @return this summary
+     */
+    DoubleSummary merge(DoubleSummary other) {
+      addAll(other);
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+      return this;
+    }
+
+    public double getMin() {
+      return min;
+    }
+
+    public double getMax() {
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("DoubleSummary{count=%d, min=%f, max=%f, mean=%f, variance=%f}",
+          getCount(), min, max, getMean(), getVariance());
+    }
+  }
+
+  /**
+   * Summary of {@code long} values. The min and the max are exact, the
+   * mean and the variances are computed in {@code double}.
+   */
+  public static final class LongSummary extends Summary {
+
+    private long min = Long.MAX_VALUE;
+
+    private long max = Long.MIN_VALUE;
+
+    LongSummary(long[] values, int startPos, int endPos) {
+      long lo = min;
+      long hi = max;
+      long n = 0;
+      double mean = 0;
+      double m2 = 0;
+      for (int i = startPos; i < endPos; i++) {
+        long v = values[i];
+        lo = Math.min(lo, v);
+        hi = Math.max(hi, v);
+        double delta = v - mean;
+        mean += delta / ++n;
+        m2 += delta * (v - mean);
+      }
+      min = lo;
+      max = hi;
+      setMoments(n, mean, m2);
+    }
+
+    /**
+     * Merges the other summary into this one.
+     *
+     * @return this summary
+     */
+    LongSummary merge(LongSummary other) {
+      addAll(other);
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+      return this;
+    }
+
+    public long getMin() {
+      return min;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("LongSummary{count=%d, min=%d, max=%d, mean=%f, variance=%f}",
+          getCount(), min, max, getMean(), getVariance());
+    }
+  }
+
+  /**
+   * Computes the partial result of a range of the array.
+   */
+  @FunctionalInterface
+  private interface RangeFunction<S> {
+
+    S apply(int startPos, int endPos);
+  }
+
+  /**
+   * Splits a range until it is smaller than the threshold, computes
+   * the partial result of each leaf range, then merges the results of
+   * sibling ranges.
+   */
+  private static class RangeTask<S> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int startPos;
+
+    private final int endPos;
+
+    private final int threshold;
+
+    private final RangeFunction<S> leaf;
+
+    private final BinaryOperator<S> merge;
+
+    private S result;
+
+    private RangeTask(int startPos, int endPos, int threshold, RangeFunction<S> leaf,
+        BinaryOperator<S> merge) {
+      this.startPos = startPos;
+      this.endPos = endPos;
+      this.threshold = threshold;
+      this.leaf = leaf;
+      this.merge = merge;
+    }
+
+    @Override
+    protected void compute() {
+      if (endPos - startPos <= threshold) {
+        result = leaf.apply(startPos, endPos);
+        return;
+      }
+      int center = startPos + (endPos - startPos) / 2;
+      RangeTask<S> left = new RangeTask<>(startPos, center, threshold, leaf, merge);
+      RangeTask<S> right = new RangeTask<>(center, endPos, threshold, leaf, merge);
+      left.fork();
+      right.compute();
+      left.join();
+      result = merge.apply(left.result, right.result);
+    }
+  }
+
+}
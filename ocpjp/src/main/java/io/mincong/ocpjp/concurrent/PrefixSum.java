@@ -0,0 +1,202 @@
+package io.mincong.ocpjp.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel prefix sum (inclusive scan): the element {@code i} of the
+ * result is the sum of the values from {@code 0} to {@code i}.
+ * <p>
+ * The scan is done in two passes over the array, both splitting it in
+ * halves recursively like {@link CalcSum}:
+ * <ol>
+ *   <li>The up-sweep computes the sum of each range, and keeps the
+ *   tree of ranges.</li>
+ *   <li>The down-sweep walks the tree again: the offset of a right
+ *   range is the offset of its parent plus the sum of its left
+ *   sibling, so each leaf range can then be scanned sequentially,
+ *   independently of the others.</li>
+ * </ol>
+ * Since the array is read twice, the parallel scan only beats a
+ * sequential loop on large arrays: below {@link #PARALLEL_THRESHOLD}
+ * elements, or if the pool has a single thread, the scan is
+ * sequential. Run {@link ForkJoinBenchmark} to measure the crossover
+ * on the target machine.
+ *
+ * @author Mincong Huang
+ */
+public final class PrefixSum {
+
+  /**
+   * Minimum number of elements for the scan to be run in parallel.
+   */
+  static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private PrefixSum() {
+    // Utility class, do not instantiate
+  }
+
+  /**
+   * Returns the prefix sums of the values, computed in the common pool.
+   * The values are not modified.
+   */
+  public static long[] scan(int[] values) {
+    return scan(values, ForkJoinPool.commonPool());
+  }
+
+  public static long[] scan(int[] values, ForkJoinPool pool) {
+    long[] result = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = values[i];
+    }
+    scanInPlace(result, pool);
+    return result;
+  }
+
+  /**
+   * Returns the prefix sums of the values, computed in the common pool.
+   * The values are not modified.
+   */
+  public static long[] scan(long[] values) {
+    return scan(values, ForkJoinPool.commonPool());
+  }
+
+  public static long[] scan(long[] values, ForkJoinPool pool) {
+    long[] result = new long[values.length];
+    scan(values, result, pool);
+    return result;
+  }
+
+  /**
+   * Replaces each value by its prefix sum, computed in the common pool.
+   */
+  public static void scanInPlace(long[] values) {
+    scanInPlace(values, ForkJoinPool.commonPool());
+  }
+
+  public static void scanInPlace(long[] values, ForkJoinPool pool) {
+    scan(values, values, pool);
+  }
+
+  private static void scan(long[] source, long[] target, ForkJoinPool pool) {
+    scan(source, target, pool, PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Scans the source into the target, which may be the same array.
+   * The scan is sequential if there are less values than the parallel
+   * threshold.
+   */
+  static void scan(long[] source, long[] target, ForkJoinPool pool,
+      int parallelThreshold) {
+    int length = source.length;
+    int parallelism = pool.getParallelism();
+    if (length < parallelThreshold || parallelism == 1) {
+      scanRange(source, target, 0, length, 0);
+      return;
+    }
+    int threshold = ParallelReduce.threshold(length, parallelism);
+    UpSweep root = new UpSweep(source, 0, length, threshold);
+    pool.invoke(root);
+    pool.invoke(new DownSweep(root, source, target, 0));
+  }
+
+  /**
+   * Sequential scan of a range, starting from the given offset.
+   */
+  private static void scanRange(long[] source, long[] target, int startPos,
+      int endPos, long offset) {
+    long sum = offset;
+    for (int i = startPos; i < endPos; i++) {
+      sum += source[i];
+      target[i] = sum;
+    }
+  }
+
+  /**
+   * Computes the sum of a range, and keeps its subranges for the
+   * down-sweep. A leaf range has no subranges.
+   */
+  private static class UpSweep extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long[] values;
+
+    private final int startPos;
+
+    private final int endPos;
+
+    private final int threshold;
+
+    private UpSweep left;
+
+    private UpSweep right;
+
+    private long sum;
+
+    private UpSweep(long[] values, int startPos, int endPos, int threshold) {
+      this.values = values;
+      this.startPos = startPos;
+      this.endPos = endPos;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (endPos - startPos <= threshold) {
+        long s = 0;
+        for (int i = startPos; i < endPos; i++) {
+          s += values[i];
+        }
+        sum = s;
+        return;
+      }
+      int center = startPos + (endPos - startPos) / 2;
+      left = new UpSweep(values, startPos, center, threshold);
+      right = new UpSweep(values, center, endPos, threshold);
+      left.fork();
+      right.compute();
+      left.join();
+      sum = left.sum + right.sum;
+    }
+  }
+
+  /**
+   * Scans a range of the up-sweep tree, given the sum of all the
+   * values before it.
+   */
+  private static class DownSweep extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final UpSweep node;
+
+    private final long[] source;
+
+    private final long[] target;
+
+    private final long offset;
+
+    private DownSweep(UpSweep node, long[] source, long[] target, long offset) {
+      this.node = node;
+      this.source = source;
+      this.target = target;
+      this.offset = offset;
+    }
+
+    @Override
+    protected void compute() {
+      if (node.left == null) {
+        scanRange(source, target, node.startPos, node.endPos, offset);
+        return;
+      }
+      DownSweep left = new DownSweep(node.left, source, target, offset);
+      DownSweep right = new DownSweep(node.right, source, target, offset + node.left.sum);
+      left.fork();
+      right.compute();
+      left.join();
+    }
+  }
+
+}
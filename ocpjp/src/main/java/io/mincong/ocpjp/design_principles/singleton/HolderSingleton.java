@@ -0,0 +1,32 @@
+package io.mincong.ocpjp.design_principles.singleton;
+
+/**
+ * Singleton with lazy initialization, using the initialization-on-demand
+ * holder idiom.
+ * <p>
+ * The instance is created when class {@link Holder} is initialized,
+ * which happens the first time {@link #getInstance()} reads its field,
+ * not when class {@link HolderSingleton} is loaded. The JVM guarantees
+ * that a class is initialized once, and that its static fields are
+ * visible to all threads afterwards. So unlike {@link SyncSingleton}
+ * and {@link SyncSingleton2}, there is no lock and no volatile read
+ * once the instance is created.
+ *
+ * @author Mincong Huang
+ */
+public class HolderSingleton {
+
+  private static class Holder {
+
+    private static final HolderSingleton INSTANCE = new HolderSingleton();
+  }
+
+  public static HolderSingleton getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  private HolderSingleton() {
+    // Singleton, do not instantiate
+  }
+
+}
@@ -0,0 +1,86 @@
+package io.mincong.ocpjp.design_principles.singleton;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares the singletons of this package under contention: all the
+ * threads call {@code getInstance()} in a loop at the same time, and
+ * the total number of calls per second is printed.
+ * <p>
+ * This is a simple harness rather than a JMH benchmark: each variant
+ * is warmed up once, then measured once. {@link BasicSingleton} is not
+ * measured, since it is not thread-safe.
+ * <p>
+ * Usage: {@code SingletonBenchmark [threads] [callsPerThread]}
+ *
+ * @author Mincong Huang
+ */
+public class SingletonBenchmark {
+
+  public static void main(String... args) throws Exception {
+    int threads = args.length > 0
+        ? Integer.parseInt(args[0])
+        : Runtime.getRuntime().availableProcessors() * 2;
+    int calls = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+    SingletonRegistry<Class<?>, Object> registry = new SingletonRegistry<>(c -> new Object());
+    System.out.printf("threads=%d, calls per thread=%d%n", threads, calls);
+    run("SyncSingleton", SyncSingleton::getInstance, threads, calls);
+    run("SyncSingleton2 (DCL)", SyncSingleton2::getInstance, threads, calls);
+    run("HolderSingleton", HolderSingleton::getInstance, threads, calls);
+    run("EagerInitSingleton", EagerInitSingleton::getInstance, threads, calls);
+    run("EnumSingleton", () -> EnumSingleton.INSTANCE, threads, calls);
+    run("SingletonRegistry", () -> registry.get(SingletonBenchmark.class), threads, calls);
+  }
+
+  private static void run(String name, Supplier<?> getInstance, int threads,
+      int calls) throws InterruptedException {
+    // Warm-up
+    measure(getInstance, threads, calls);
+    long nanos = measure(getInstance, threads, calls);
+    double callsPerSecond = (double) threads * calls * TimeUnit.SECONDS.toNanos(1) / nanos;
+    System.out.printf("%-24s %14.0f calls/s%n", name, callsPerSecond);
+  }
+
+  /**
+   * Returns the time for all the threads to complete their calls, in
+   * nanoseconds.
+   */
+  private static long measure(Supplier<?> getInstance, int threads, int calls)
+      throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      Thread t = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        int nulls = 0;
+        for (int j = 0; j < calls; j++) {
+          if (getInstance.get() == null) {
+            nulls++;
+          }
+        }
+        if (nulls > 0) {
+          throw new IllegalStateException(nulls + " null instances");
+        }
+      });
+      workers.add(t);
+      t.start();
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread t : workers) {
+      t.join();
+    }
+    return System.nanoTime() - begin;
+  }
+
+}
@@ -0,0 +1,63 @@
+package io.mincong.ocpjp.design_principles.singleton;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Registry of lazy singletons: one instance per key, created by the
+ * factory the first time the key is requested.
+ * <p>
+ * The instances are stored in a {@link ConcurrentHashMap}, whose
+ * {@link ConcurrentHashMap#computeIfAbsent(Object, Function)} calls
+ * the factory at most once per key. But in Java 8, this method locks
+ * the bin of the key even if the instance already exists, so the
+ * instance is first looked up with {@link ConcurrentMap#get(Object)},
+ * which never takes a lock. Only the first requests of a key, while
+ * it is created, can block.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the instances
+ * @author Mincong Huang
+ */
+public class SingletonRegistry<K, V> {
+
+  private final ConcurrentMap<K, V> instances = new ConcurrentHashMap<>();
+
+  private final Function<? super K, ? extends V> factory;
+
+  /**
+   * @param factory creates the instance of a key. It must not return
+   *     {@code null}, and must not request the registry recursively.
+   */
+  public SingletonRegistry(Function<? super K, ? extends V> factory) {
+    this.factory = Objects.requireNonNull(factory);
+  }
+
+  /**
+   * Returns the instance of the key, creating it if necessary.
+   *
+   * @throws NullPointerException if the key is {@code null}, or if the
+   *     factory returns {@code null}
+   */
+  public V get(K key) {
+    V instance = instances.get(key);
+    if (instance != null) {
+      return instance;
+    }
+    instance = instances.computeIfAbsent(key, factory);
+    if (instance == null) {
+      throw new NullPointerException("Factory returned null for key " + key);
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the number of instances created.
+   */
+  public int size() {
+    return instances.size();
+  }
+
+}
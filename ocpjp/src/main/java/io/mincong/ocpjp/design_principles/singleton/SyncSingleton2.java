@@ -7,26 +7,34 @@ package io.mincong.ocpjp.design_principles.singleton;
  */
 public class SyncSingleton2 {
 
-  // No eager initialization
-  private static SyncSingleton2 instance;
+  // No eager initialization. The field must be volatile: otherwise,
+  // another thread may see the reference before the constructor of
+  // the instance completed, since the first check is not synchronized.
+  private static volatile SyncSingleton2 instance;
 
   /**
    * By synchronizing method <tt>getInstance()</tt> partially, we can
-   * avoid some performance issue.
+   * avoid some performance issue. This is the double-checked locking
+   * idiom.
    *
    * @see SyncSingleton#getInstance()
+   * @see HolderSingleton#getInstance()
    */
   public static SyncSingleton2 getInstance() {
-    if (instance == null) {
+    // Local variable, so that the volatile field is read only once
+    // when initialized
+    SyncSingleton2 result = instance;
+    if (result == null) {
       // Synchronize code block that creates new object
       // (the thread acquires a lock on this class)
       synchronized (SyncSingleton2.class) {
-        if (instance == null) {
-          instance = new SyncSingleton2();
+        result = instance;
+        if (result == null) {
+          instance = result = new SyncSingleton2();
         }
       }
     }
-    return instance;
+    return result;
   }
 
   private SyncSingleton2() {
@@ -0,0 +1,165 @@
+package io.mincong.ocpjp.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+
+/**
+ * An asynchronous file copy based on {@link AsynchronousFileChannel}.
+ * <p>
+ * Each read is chained to a write, and each write to the next read,
+ * through {@link CompletionHandler}s. So no thread is blocked during
+ * the copy: the handlers are executed by the thread pool of the
+ * channels. The copy can be cancelled by cancelling its future, it
+ * then stops at the next completed read or write.
+ *
+ * @author Mincong Huang
+ */
+final class AsyncCopy {
+
+  private final AsynchronousFileChannel in;
+
+  private final AsynchronousFileChannel out;
+
+  private final LongConsumer progress;
+
+  private final ByteBuffer buffer;
+
+  private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+  private long position = 0;
+
+  private AsyncCopy(AsynchronousFileChannel in, AsynchronousFileChannel out,
+      LongConsumer progress) throws IOException {
+    this.in = in;
+    this.out = out;
+    this.progress = progress;
+    this.buffer = FileHelper.BUFFER_POOL.acquire(in.size());
+  }
+
+  /**
+   * Starts copying the source to the target.
+   *
+   * @param progress the callback receiving the total number of bytes
+   *     copied, after each write
+   * @return the future completed with the number of bytes copied
+   */
+  static CompletableFuture<Long> start(Path source, Path target,
+      LongConsumer progress) {
+    AsynchronousFileChannel in = null;
+    AsynchronousFileChannel out = null;
+    try {
+      in = AsynchronousFileChannel.open(source, StandardOpenOption.READ);
+      out = AsynchronousFileChannel.open(target,
+          StandardOpenOption.WRITE,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+      AsyncCopy copy = new AsyncCopy(in, out, progress);
+      copy.future.whenComplete((count, e) -> copy.closeChannels());
+      copy.read();
+      return copy.future;
+    } catch (IOException e) {
+      closeQuietly(in, e);
+      closeQuietly(out, e);
+      CompletableFuture<Long> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+  }
+
+  private static void closeQuietly(AsynchronousFileChannel channel,
+      IOException e) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException suppressed) {
+        if (e != null) {
+          e.addSuppressed(suppressed);
+        }
+      }
+    }
+  }
+
+  private void read() {
+    if (future.isDone()) {
+      releaseBuffer();
+      return;
+    }
+    buffer.clear();
+    in.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+      @Override
+      public void completed(Integer len, Void attachment) {
+        if (len == -1) {
+          future.complete(position);
+          releaseBuffer();
+        } else {
+          buffer.flip();
+          write();
+        }
+      }
+
+      @Override
+      public void failed(Throwable e, Void attachment) {
+        future.completeExceptionally(e);
+        releaseBuffer();
+      }
+    });
+  }
+
+  private void write() {
+    if (future.isDone()) {
+      releaseBuffer();
+      return;
+    }
+    out.write(buffer, position, null, new CompletionHandler<Integer, Void>() {
+      @Override
+      public void completed(Integer len, Void attachment) {
+        position += len;
+        try {
+          progress.accept(position);
+        } catch (RuntimeException e) {
+          future.completeExceptionally(e);
+        }
+        if (buffer.hasRemaining()) {
+          // Partial write, write the rest of the buffer
+          write();
+        } else {
+          read();
+        }
+      }
+
+      @Override
+      public void failed(Throwable e, Void attachment) {
+        future.completeExceptionally(e);
+        releaseBuffer();
+      }
+    });
+  }
+
+  /**
+   * Closes the channels once the future is completed. Pending reads
+   * or writes, if any, then fail with an
+   * {@link java.nio.channels.AsynchronousCloseException}.
+   */
+  private void closeChannels() {
+    // The result of the copy is already known, so close failures are
+    // not reported
+    closeQuietly(in, null);
+    closeQuietly(out, null);
+  }
+
+  /**
+   * Returns the buffer to the pool. This is only called from a
+   * completion handler, or before starting a new operation, so that
+   * no pending operation is still using the buffer.
+   */
+  private void releaseBuffer() {
+    FileHelper.BUFFER_POOL.release(buffer);
+  }
+
+}
@@ -0,0 +1,173 @@
+package io.mincong.ocpjp.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies many files at once.
+ * <p>
+ * Copying a lot of small files is dominated by the cost of opening
+ * and closing them, rather than by the copy itself. So the files are
+ * sorted by directory, to improve the locality of the file system
+ * lookups, then copied on a fixed thread pool. Each copy is done by
+ * {@link FileHelper#pooledCopy(File, File)}, which shares its buffers
+ * between the workers.
+ *
+ * @author Mincong Huang
+ */
+final class BatchCopy {
+
+  private static final Comparator<Entry> BY_DIRECTORY =
+      Comparator.comparing((Entry e) -> String.valueOf(e.source.getParent()))
+          .thenComparing(e -> e.source.getName());
+
+  private BatchCopy() {
+    // Utility class, do not instantiate
+  }
+
+  /**
+   * Copies all the entries using the given number of threads. A failed
+   * copy does not stop the other ones, it is reported in its result.
+   *
+   * @return the report of the batch, containing one result per entry,
+   *     in the order of the copies
+   * @throws InterruptedException if interrupted while waiting for the
+   *     copies, the remaining copies are then cancelled
+   */
+  static Report copyAll(List<Entry> entries, int parallelism)
+      throws InterruptedException {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+    List<Entry> sorted = new ArrayList<>(entries);
+    sorted.sort(BY_DIRECTORY);
+
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<Future<Result>> futures = new ArrayList<>(sorted.size());
+      for (Entry entry : sorted) {
+        futures.add(pool.submit(() -> copy(entry)));
+      }
+      List<Result> results = new ArrayList<>(sorted.size());
+      for (Future<Result> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException e) {
+          // Copy errors are caught by the task itself
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+      return new Report(results, System.nanoTime() - start);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static Result copy(Entry entry) {
+    try {
+      long bytes = FileHelper.pooledCopy(entry.source, entry.target);
+      return new Result(entry, bytes, null);
+    } catch (IOException e) {
+      return new Result(entry, 0, e);
+    }
+  }
+
+  /**
+   * A pair of source and target files.
+   */
+  static final class Entry {
+
+    final File source;
+
+    final File target;
+
+    Entry(File source, File target) {
+      this.source = source;
+      this.target = target;
+    }
+
+    @Override
+    public String toString() {
+      return source + " -> " + target;
+    }
+  }
+
+  /**
+   * The result of the copy of one entry.
+   */
+  static final class Result {
+
+    final Entry entry;
+
+    final long bytes;
+
+    /**
+     * The error of the copy, or {@code null} if succeeded.
+     */
+    final IOException error;
+
+    Result(Entry entry, long bytes, IOException error) {
+      this.entry = entry;
+      this.bytes = bytes;
+      this.error = error;
+    }
+
+    boolean isSuccess() {
+      return error == null;
+    }
+  }
+
+  /**
+   * The aggregated results of a batch.
+   */
+  static final class Report {
+
+    final List<Result> results;
+
+    final long elapsedNanos;
+
+    Report(List<Result> results, long elapsedNanos) {
+      this.results = Collections.unmodifiableList(results);
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    long totalBytes() {
+      return results.stream().mapToLong(r -> r.bytes).sum();
+    }
+
+    long failureCount() {
+      return results.stream().filter(r -> !r.isSuccess()).count();
+    }
+
+    /**
+     * Returns the throughput of the batch, in bytes per second.
+     */
+    double bytesPerSecond() {
+      if (elapsedNanos == 0) {
+        return 0;
+      }
+      return totalBytes() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Returns the throughput of the batch, in files per second.
+     */
+    double filesPerSecond() {
+      if (elapsedNanos == 0) {
+        return 0;
+      }
+      return results.size() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+  }
+
+}
@@ -0,0 +1,402 @@
+package io.mincong.ocpjp.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block-based compression using the JDK {@link Deflater}.
+ * <p>
+ * The data is split into blocks which are compressed independently,
+ * so the blocks of a file can be compressed in parallel. A compressed
+ * file starts with {@link #MAGIC}, followed by the blocks, and ends with
+ * {@link #END_OF_STREAM}. Each block is written as its raw length, its
+ * compressed length, then its compressed bytes. The end marker takes
+ * the place of a raw length, so a file truncated anywhere, even between
+ * two blocks, is detected when read.
+ *
+ * @author Mincong Huang
+ */
+final class BlockCompression {
+
+  /**
+   * The header of a compressed file: "BLK1" in ASCII.
+   */
+  static final int MAGIC = 0x424C4B31;
+
+  /**
+   * The raw length written after the last block.
+   */
+  static final int END_OF_STREAM = -1;
+
+  static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+  /**
+   * The maximum size of a block. It bounds the memory allocated when
+   * reading a block, whatever the lengths found in a corrupted file.
+   */
+  static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+
+  private BlockCompression() {
+    // Utility class, do not instantiate
+  }
+
+  /**
+   * Returns {@code true} if the file starts with {@link #MAGIC}.
+   */
+  static boolean isCompressed(File file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+      return in.readInt() == MAGIC;
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Compresses the source file into the target file. The blocks are
+   * compressed by a fixed thread pool, and written in order. At most
+   * two blocks per thread are in memory at the same time.
+   *
+   * @return the size of the compressed file, in bytes
+   */
+  static long compress(File source, File target, int blockSize,
+      int parallelism) throws IOException {
+    checkBlockSize(blockSize);
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+    try (
+        InputStream in = new FileInputStream(source);
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(target)))
+    ) {
+      out.writeInt(MAGIC);
+      Deque<Future<byte[]>> pending = new ArrayDeque<>();
+      Deque<Integer> rawLengths = new ArrayDeque<>();
+      byte[] block;
+      while ((block = readBlock(in, blockSize)) != null) {
+        byte[] raw = block;
+        pending.add(pool.submit(() -> deflate(raw, raw.length)));
+        rawLengths.add(raw.length);
+        if (pending.size() >= parallelism * 2) {
+          writeBlock(out, rawLengths.poll(), getResult(pending.poll()));
+        }
+      }
+      while (!pending.isEmpty()) {
+        writeBlock(out, rawLengths.poll(), getResult(pending.poll()));
+      }
+      out.writeInt(END_OF_STREAM);
+    } finally {
+      pool.shutdownNow();
+    }
+    return target.length();
+  }
+
+  /**
+   * Returns an output stream compressing the data written to it, block
+   * by block, into the given stream.
+   */
+  static OutputStream compressingStream(OutputStream out, int blockSize)
+      throws IOException {
+    return new BlockOutputStream(out, blockSize);
+  }
+
+  /**
+   * Returns an input stream decompressing the data of the given stream,
+   * which must start with {@link #MAGIC}.
+   */
+  static InputStream decompressingStream(InputStream in) throws IOException {
+    return new BlockInputStream(in);
+  }
+
+  private static void checkBlockSize(int blockSize) {
+    if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+      throw new IllegalArgumentException(
+          "Block size must be between 1 and " + MAX_BLOCK_SIZE + ": " + blockSize);
+    }
+  }
+
+  /**
+   * Returns the maximum length of a block of the given length once
+   * compressed: incompressible data is slightly larger once compressed.
+   */
+  private static int maxCompressedLength(int rawLength) {
+    return rawLength + rawLength / 100 + 64;
+  }
+
+  /**
+   * Reads a full block, or the remaining bytes of the stream.
+   *
+   * @return the block, or {@code null} if end of stream is reached
+   */
+  private static byte[] readBlock(InputStream in, int blockSize)
+      throws IOException {
+    byte[] block = new byte[blockSize];
+    int size = 0;
+    int len;
+    while (size < blockSize && (len = in.read(block, size, blockSize - size)) != -1) {
+      size += len;
+    }
+    if (size == 0) {
+      return null;
+    }
+    return size == blockSize ? block : Arrays.copyOf(block, size);
+  }
+
+  /**
+   * Compresses the first {@code length} bytes of the data.
+   */
+  private static byte[] deflate(byte[] data, int length) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(data, 0, length);
+      deflater.finish();
+      byte[] result = new byte[maxCompressedLength(length)];
+      int size = 0;
+      while (!deflater.finished()) {
+        if (size == result.length) {
+          result = Arrays.copyOf(result, result.length * 2);
+        }
+        size += deflater.deflate(result, size, result.length - size);
+      }
+      return Arrays.copyOf(result, size);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static void writeBlock(DataOutputStream out, int rawLength,
+      byte[] compressed) throws IOException {
+    out.writeInt(rawLength);
+    out.writeInt(compressed.length);
+    out.write(compressed);
+  }
+
+  private static byte[] getResult(Future<byte[]> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static final class BlockOutputStream extends OutputStream {
+
+    private final DataOutputStream out;
+
+    private final byte[] block;
+
+    private int size = 0;
+
+    private boolean closed = false;
+
+    private BlockOutputStream(OutputStream out, int blockSize)
+        throws IOException {
+      checkBlockSize(blockSize);
+      this.out = new DataOutputStream(out);
+      this.block = new byte[blockSize];
+      this.out.writeInt(MAGIC);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (size == block.length) {
+        flushBlock();
+      }
+      block[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (size == block.length) {
+          flushBlock();
+        }
+        int n = Math.min(len, block.length - size);
+        System.arraycopy(b, off, block, size, n);
+        size += n;
+        off += n;
+        len -= n;
+      }
+    }
+
+    private void flushBlock() throws IOException {
+      if (size > 0) {
+        writeBlock(out, size, deflate(block, size));
+        size = 0;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        flushBlock();
+        out.writeInt(END_OF_STREAM);
+      } finally {
+        out.close();
+      }
+    }
+  }
+
+  private static final class BlockInputStream extends InputStream {
+
+    private final DataInputStream in;
+
+    private final Inflater inflater = new Inflater();
+
+    private byte[] block = new byte[0];
+
+    private int position = 0;
+
+    private boolean ended = false;
+
+    private BlockInputStream(InputStream in) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(in));
+      if (this.in.readInt() != MAGIC) {
+        throw new IOException("Not a compressed stream");
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!nextBlockIfNeeded()) {
+        return -1;
+      }
+      return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!nextBlockIfNeeded()) {
+        return -1;
+      }
+      int n = Math.min(len, block.length - position);
+      System.arraycopy(block, position, b, off, n);
+      position += n;
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return block.length - position;
+    }
+
+    /**
+     * @return {@code false} if the end marker is reached
+     * @throws EOFException if the stream ends before the end marker
+     */
+    private boolean nextBlockIfNeeded() throws IOException {
+      while (position == block.length) {
+        if (ended) {
+          return false;
+        }
+        int rawLength = readRawLength();
+        if (rawLength == END_OF_STREAM) {
+          ended = true;
+          return false;
+        }
+        int compressedLength = in.readInt();
+        if (rawLength < 0 || rawLength > MAX_BLOCK_SIZE
+            || compressedLength < 0 || compressedLength > maxCompressedLength(rawLength)) {
+          throw new IOException("Corrupted block: raw length " + rawLength
+              + ", compressed length " + compressedLength);
+        }
+        byte[] compressed = new byte[compressedLength];
+        in.readFully(compressed);
+        block = new byte[rawLength];
+        position = 0;
+        inflate(compressed);
+      }
+      return true;
+    }
+
+    /**
+     * Reads the raw length of the next block, or the end marker.
+     *
+     * @throws EOFException if the stream ends before the end marker, or
+     *     within the raw length
+     */
+    private int readRawLength() throws IOException {
+      int first = in.read();
+      if (first == -1) {
+        throw new EOFException("Stream truncated: no end marker");
+      }
+      byte[] rest = new byte[Integer.BYTES - 1];
+      try {
+        in.readFully(rest);
+      } catch (EOFException e) {
+        throw new EOFException("Stream truncated: block header incomplete");
+      }
+      return first << 24 | (rest[0] & 0xFF) << 16 | (rest[1] & 0xFF) << 8 | rest[2] & 0xFF;
+    }
+
+    /**
+     * Inflates the compressed data into the block, which must be filled
+     * exactly when the end of the compressed data is reached.
+     */
+    private void inflate(byte[] compressed) throws IOException {
+      inflater.reset();
+      inflater.setInput(compressed);
+      try {
+        int size = 0;
+        while (size < block.length) {
+          int n = inflater.inflate(block, size, block.length - size);
+          if (n == 0 && (inflater.finished() || inflater.needsInput()
+              || inflater.needsDictionary())) {
+            // Ends before the raw length, or cannot make progress
+            throw new IOException("Corrupted block");
+          }
+          size += n;
+        }
+        // The end of the compressed data may not be processed yet once
+        // the block is full: it must not produce any more byte
+        if (!inflater.finished()
+            && (inflater.inflate(new byte[1]) != 0 || !inflater.finished())) {
+          throw new IOException("Corrupted block");
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Corrupted block", e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        inflater.end();
+      } finally {
+        in.close();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+package io.mincong.ocpjp.io;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe pool of direct {@link ByteBuffer}s.
+ * <p>
+ * Allocating a direct buffer is expensive, and it is not released
+ * until the buffer is garbage collected. So the buffers are kept in
+ * the pool once released, and reused by the next copy. Buffer sizes
+ * are always a power of two between {@link #MIN_BUFFER_SIZE} and
+ * {@link #MAX_BUFFER_SIZE}, and one queue is kept per size.
+ *
+ * @author Mincong Huang
+ */
+final class BufferPool {
+
+  static final int MIN_BUFFER_SIZE = 64 * 1024;
+
+  static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+  /**
+   * Default block size of the file system. Java 8 does not expose the
+   * block size of a file store, so the most common value is used.
+   */
+  static final int DEFAULT_BLOCK_SIZE = 4096;
+
+  private final ConcurrentMap<Integer, Queue<ByteBuffer>> buffers =
+      new ConcurrentHashMap<>();
+
+  private final int maxBuffersPerSize;
+
+  /**
+   * @param maxBuffersPerSize the maximum number of idle buffers kept
+   *     for each buffer size, the other ones are left to the garbage
+   *     collector.
+   */
+  BufferPool(int maxBuffersPerSize) {
+    if (maxBuffersPerSize <= 0) {
+      throw new IllegalArgumentException("Max buffers must be positive");
+    }
+    this.maxBuffersPerSize = maxBuffersPerSize;
+  }
+
+  /**
+   * Computes the buffer size to use for a file: the file size rounded
+   * up to a multiple of the block size, then to the next power of two,
+   * and bounded by {@link #MIN_BUFFER_SIZE} and
+   * {@link #MAX_BUFFER_SIZE}.
+   */
+  static int bufferSize(long fileSize, int blockSize) {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("Block size must be positive");
+    }
+    long blocks = (fileSize + blockSize - 1) / blockSize;
+    long size = Math.max(blocks * blockSize, MIN_BUFFER_SIZE);
+    if (size >= MAX_BUFFER_SIZE) {
+      return MAX_BUFFER_SIZE;
+    }
+    int n = (int) size;
+    return Integer.bitCount(n) == 1 ? n : Integer.highestOneBit(n) << 1;
+  }
+
+  /**
+   * Acquires a cleared direct buffer suitable for a file of the given
+   * size. The buffer must be returned by {@link #release(ByteBuffer)}.
+   */
+  ByteBuffer acquire(long fileSize) {
+    int size = bufferSize(fileSize, DEFAULT_BLOCK_SIZE);
+    ByteBuffer buffer = queue(size).poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(size);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Returns the buffer to the pool. Buffers which were not acquired
+   * from a pool are ignored.
+   */
+  void release(ByteBuffer buffer) {
+    int size = buffer.capacity();
+    if (!buffer.isDirect() || size != bufferSize(size, DEFAULT_BLOCK_SIZE)) {
+      return;
+    }
+    Queue<ByteBuffer> queue = queue(size);
+    // The check is not atomic, the pool may slightly exceed its limit
+    if (queue.size() < maxBuffersPerSize) {
+      queue.offer(buffer);
+    }
+  }
+
+  /**
+   * Returns the number of idle buffers in the pool.
+   */
+  int idleCount() {
+    return buffers.values().stream().mapToInt(Queue::size).sum();
+  }
+
+  private Queue<ByteBuffer> queue(int size) {
+    return buffers.computeIfAbsent(size, k -> new ConcurrentLinkedQueue<>());
+  }
+
+}
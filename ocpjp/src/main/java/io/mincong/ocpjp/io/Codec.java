@@ -0,0 +1,36 @@
+package io.mincong.ocpjp.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes and decodes values of a given type to and from a
+ * {@link ByteBuffer}, as a compact binary alternative to Java
+ * serialization.
+ * <p>
+ * Unlike {@link java.io.ObjectOutputStream}, a codec does not write
+ * any class metadata, nor use reflection: the fields are written one
+ * after another by the codec itself. So the codec is responsible for
+ * reading them back in the same order.
+ *
+ * @param <T> the type of the values
+ * @author Mincong Huang
+ * @see CodecRegistry
+ */
+interface Codec<T> {
+
+  /**
+   * Returns the exact number of bytes required to encode the value.
+   */
+  int sizeOf(T value);
+
+  /**
+   * Encodes the value into the buffer, at the buffer's position.
+   */
+  void encode(T value, ByteBuffer buffer);
+
+  /**
+   * Decodes a value from the buffer, at the buffer's position.
+   */
+  T decode(ByteBuffer buffer);
+
+}
@@ -0,0 +1,114 @@
+package io.mincong.ocpjp.io;
+
+import io.mincong.ocpjp.design_principles.dao.Group;
+import io.mincong.ocpjp.design_principles.dao.Person;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of codecs, identified by a type id.
+ * <p>
+ * A value is encoded as its type id (4 bytes) followed by the payload
+ * written by its codec. The type id replaces the class descriptor
+ * written by Java serialization, so it must never change once values
+ * are persisted.
+ *
+ * @author Mincong Huang
+ */
+final class CodecRegistry {
+
+  private final Map<Class<?>, Integer> idsByType = new ConcurrentHashMap<>();
+
+  private final Map<Integer, Codec<?>> codecsById = new ConcurrentHashMap<>();
+
+  private final Map<Integer, Class<?>> typesById = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a registry containing the codecs of the entities:
+   * {@link Person} (type id 1) and {@link Group} (type id 2).
+   */
+  static CodecRegistry defaultRegistry() {
+    CodecRegistry registry = new CodecRegistry();
+    registry.register(Person.class, 1, Codecs.PERSON);
+    registry.register(Group.class, 2, Codecs.GROUP);
+    return registry;
+  }
+
+  /**
+   * Registers the codec of a type. Registrations are serialized, so
+   * that a type and a type id are always registered together; lookups
+   * do not lock.
+   *
+   * @throws IllegalArgumentException if the type or the type id is
+   *     already registered
+   */
+  synchronized <T> void register(Class<T> type, int typeId, Codec<T> codec) {
+    if (typesById.containsKey(typeId)) {
+      throw new IllegalArgumentException("Type id already registered: " + typeId);
+    }
+    if (idsByType.containsKey(type)) {
+      throw new IllegalArgumentException("Type already registered: " + type.getName());
+    }
+    codecsById.put(typeId, codec);
+    idsByType.put(type, typeId);
+    typesById.put(typeId, type);
+  }
+
+  /**
+   * Returns the number of bytes required to encode the value,
+   * including its type id.
+   */
+  int sizeOf(Object value) {
+    return Integer.BYTES + codecOf(typeIdOf(value.getClass())).sizeOf(value);
+  }
+
+  /**
+   * Encodes the type id and the payload of the value into the buffer.
+   */
+  void encode(Object value, ByteBuffer buffer) {
+    int typeId = typeIdOf(value.getClass());
+    buffer.putInt(typeId);
+    codecOf(typeId).encode(value, buffer);
+  }
+
+  /**
+   * Decodes a value encoded by {@link #encode(Object, ByteBuffer)}.
+   * <p>
+   * The type id comes from the data, not from the caller, so an
+   * unknown or unexpected type id means that the data is corrupted.
+   *
+   * @throws UncheckedIOException wrapping a
+   *     {@link StreamCorruptedException} if the type id is unknown, or
+   *     does not match the expected type, or if the payload is invalid
+   */
+  <T> T decode(ByteBuffer buffer, Class<T> type) {
+    int typeId = buffer.getInt();
+    Class<?> actual = typesById.get(typeId);
+    if (actual == null) {
+      throw new UncheckedIOException(
+          new StreamCorruptedException("Unknown type id: " + typeId));
+    }
+    if (!type.isAssignableFrom(actual)) {
+      throw new UncheckedIOException(new StreamCorruptedException(
+          "Expected " + type.getName() + ", but was " + actual.getName()));
+    }
+    return type.cast(codecOf(typeId).decode(buffer));
+  }
+
+  private int typeIdOf(Class<?> type) {
+    Integer typeId = idsByType.get(type);
+    if (typeId == null) {
+      throw new IllegalArgumentException("No codec registered for " + type.getName());
+    }
+    return typeId;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Codec<Object> codecOf(int typeId) {
+    return (Codec<Object>) codecsById.get(typeId);
+  }
+
+}
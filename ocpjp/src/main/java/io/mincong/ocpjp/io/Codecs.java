@@ -0,0 +1,140 @@
+package io.mincong.ocpjp.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.mincong.ocpjp.design_principles.dao.Group;
+import io.mincong.ocpjp.design_principles.dao.Person;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Codecs of the entities, and helpers to write them.
+ *
+ * @author Mincong Huang
+ */
+final class Codecs {
+
+  /**
+   * Encodes a {@link Person} as: id, name, age, address.
+   */
+  static final Codec<Person> PERSON = new Codec<Person>() {
+    @Override
+    public int sizeOf(Person p) {
+      return Integer.BYTES * 2 + sizeOfString(p.getName()) + sizeOfString(p.getAddress());
+    }
+
+    @Override
+    public void encode(Person p, ByteBuffer buffer) {
+      buffer.putInt(p.getId());
+      putString(buffer, p.getName());
+      buffer.putInt(p.getAge());
+      putString(buffer, p.getAddress());
+    }
+
+    @Override
+    public Person decode(ByteBuffer buffer) {
+      int id = buffer.getInt();
+      String name = getString(buffer);
+      int age = buffer.getInt();
+      String address = getString(buffer);
+      return new Person(id, name, age, address);
+    }
+  };
+
+  /**
+   * Encodes a {@link Group} as: id, name.
+   */
+  static final Codec<Group> GROUP = new Codec<Group>() {
+    @Override
+    public int sizeOf(Group g) {
+      return Integer.BYTES + sizeOfString(g.getName());
+    }
+
+    @Override
+    public void encode(Group g, ByteBuffer buffer) {
+      buffer.putInt(g.getId());
+      putString(buffer, g.getName());
+    }
+
+    @Override
+    public Group decode(ByteBuffer buffer) {
+      Group g = new Group();
+      g.setId(buffer.getInt());
+      g.setName(getString(buffer));
+      return g;
+    }
+  };
+
+  private Codecs() {
+    // Utility class, do not instantiate
+  }
+
+  /**
+   * Returns the number of bytes required by
+   * {@link #putString(ByteBuffer, String)}.
+   */
+  static int sizeOfString(String s) {
+    return Integer.BYTES + (s == null ? 0 : utf8Length(s));
+  }
+
+  /**
+   * Writes a string as its length in UTF-8 bytes, followed by the
+   * bytes. A {@code null} string is written as length -1.
+   */
+  static void putString(ByteBuffer buffer, String s) {
+    if (s == null) {
+      buffer.putInt(-1);
+    } else {
+      byte[] bytes = s.getBytes(UTF_8);
+      buffer.putInt(bytes.length);
+      buffer.put(bytes);
+    }
+  }
+
+  /**
+   * Reads a string written by {@link #putString(ByteBuffer, String)}.
+   *
+   * @throws UncheckedIOException if the length is neither -1 nor
+   *     within the remaining bytes of the buffer
+   */
+  static String getString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length == -1) {
+      return null;
+    }
+    if (length < 0 || length > buffer.remaining()) {
+      throw new UncheckedIOException(new StreamCorruptedException(
+          "Invalid string length: " + length + ", remaining: " + buffer.remaining()));
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  /**
+   * Computes the length of the string in UTF-8, without encoding it.
+   */
+  private static int utf8Length(String s) {
+    int length = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogate, replaced by '?' in String#getBytes
+        length += 1;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+}
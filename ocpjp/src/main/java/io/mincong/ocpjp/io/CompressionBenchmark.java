@@ -0,0 +1,98 @@
+package io.mincong.ocpjp.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link FileHelper#pooledCopy(File, File)} with
+ * {@link FileHelper#compressedCopy(File, File, int, int)}, for files
+ * of different compressibility.
+ * <p>
+ * Compression only pays off when the time saved on writing fewer
+ * bytes is larger than the CPU time spent on compressing them. So the
+ * crossover point depends on the disk throughput and on the number of
+ * cores: run it on the target machine, with a file size larger than
+ * the page cache for meaningful results.
+ * <p>
+ * Usage: {@code CompressionBenchmark [sizeInMB] [iterations]}
+ *
+ * @author Mincong Huang
+ */
+public class CompressionBenchmark {
+
+  public static void main(String... args) throws IOException {
+    long sizeInMb = args.length > 0 ? Long.parseLong(args[0]) : 64;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    int parallelism = Runtime.getRuntime().availableProcessors();
+
+    File dir = Files.createTempDirectory("compression").toFile();
+    File source = new File(dir, "source.bin");
+    File target = new File(dir, "target.bin");
+    try {
+      System.out.printf("%-8s %12s %12s %8s%n",
+          "random", "plain (ms)", "deflate (ms)", "ratio");
+      // From highly compressible data to random data
+      for (int randomPercent = 0; randomPercent <= 100; randomPercent += 20) {
+        generate(source, sizeInMb * 1024 * 1024, randomPercent);
+
+        long plain = Long.MAX_VALUE;
+        long compressed = Long.MAX_VALUE;
+        long compressedSize = 0;
+        for (int i = 0; i < iterations; i++) {
+          long start = System.nanoTime();
+          FileHelper.pooledCopy(source, target);
+          plain = Math.min(plain, System.nanoTime() - start);
+
+          start = System.nanoTime();
+          compressedSize = FileHelper.compressedCopy(source, target,
+              BlockCompression.DEFAULT_BLOCK_SIZE, parallelism);
+          compressed = Math.min(compressed, System.nanoTime() - start);
+        }
+        System.out.printf("%-8s %12d %12d %8.2f%n",
+            randomPercent + "%",
+            TimeUnit.NANOSECONDS.toMillis(plain),
+            TimeUnit.NANOSECONDS.toMillis(compressed),
+            (double) compressedSize / source.length());
+      }
+    } finally {
+      Files.deleteIfExists(source.toPath());
+      Files.deleteIfExists(target.toPath());
+      Files.deleteIfExists(dir.toPath());
+    }
+  }
+
+  /**
+   * Generates a file where the given percentage of each kilobyte is
+   * random, the rest being repeated text. The file is written chunk by
+   * chunk, so it can be larger than the heap.
+   */
+  private static void generate(File file, long size, int randomPercent)
+      throws IOException {
+    Random random = new Random(42);
+    byte[] chunk = new byte[1024 * 1024];
+    byte[] text = "The night is dark and full of terrors. ".getBytes(UTF_8);
+    int randomBytes = randomPercent * 1024 / 100;
+    try (OutputStream out = new FileOutputStream(file)) {
+      for (long offset = 0; offset < size; offset += chunk.length) {
+        int length = (int) Math.min(chunk.length, size - offset);
+        for (int i = 0; i < length; i++) {
+          long position = offset + i;
+          if (position % 1024 < randomBytes) {
+            chunk[i] = (byte) random.nextInt();
+          } else {
+            chunk[i] = text[(int) (position % text.length)];
+          }
+        }
+        out.write(chunk, 0, length);
+      }
+    }
+  }
+
+}
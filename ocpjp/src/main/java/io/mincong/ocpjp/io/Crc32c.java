@@ -0,0 +1,74 @@
+package io.mincong.ocpjp.io;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum.
+ * <p>
+ * Java 9 provides {@code java.util.zip.CRC32C}, backed by a hardware
+ * instruction when available, but this project targets Java 8. So
+ * {@link #create()} uses the JDK class when it exists, and falls back
+ * to this table-based implementation otherwise. Both produce the same
+ * values.
+ *
+ * @author Mincong Huang
+ */
+final class Crc32c implements Checksum {
+
+  /**
+   * Reversed Castagnoli polynomial.
+   */
+  private static final int POLYNOMIAL = 0x82F63B78;
+
+  private static final int[] TABLE = new int[256];
+
+  static {
+    for (int i = 0; i < TABLE.length; i++) {
+      int crc = i;
+      for (int j = 0; j < 8; j++) {
+        crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+      }
+      TABLE[i] = crc;
+    }
+  }
+
+  private int crc = 0xFFFFFFFF;
+
+  /**
+   * Creates a CRC-32C checksum, using the JDK implementation if the
+   * runtime provides one.
+   */
+  static Checksum create() {
+    try {
+      Class<?> jdkClass = Class.forName("java.util.zip.CRC32C");
+      return (Checksum) jdkClass.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      return new Crc32c();
+    }
+  }
+
+  @Override
+  public void update(int b) {
+    crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+  }
+
+  @Override
+  public void update(byte[] b, int off, int len) {
+    int c = crc;
+    for (int i = off; i < off + len; i++) {
+      c = (c >>> 8) ^ TABLE[(c ^ b[i]) & 0xFF];
+    }
+    crc = c;
+  }
+
+  @Override
+  public long getValue() {
+    return ~crc & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public void reset() {
+    crc = 0xFFFFFFFF;
+  }
+
+}
@@ -0,0 +1,140 @@
+package io.mincong.ocpjp.io;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Summary of a directory tree: statistics, histogram of file
+ * extensions and distribution of file sizes.
+ * <p>
+ * Summaries are mergeable: the summary of a tree is the merge of the
+ * summaries of its subtrees, so subtrees can be summarized
+ * independently, in any order. The memory used by a summary does not
+ * depend on the number of files: sizes are counted in 64 buckets, and
+ * at most {@link #MAX_EXTENSIONS} extensions are tracked, the other
+ * ones being counted under {@link #OTHER_EXTENSIONS}. Which extensions
+ * are tracked depends on the order of the additions and merges, see
+ * {@link #merge(DirectorySummary)}.
+ *
+ * @author Mincong Huang
+ */
+public final class DirectorySummary {
+
+  static final int MAX_EXTENSIONS = 1_000;
+
+  static final String NO_EXTENSION = "";
+
+  static final String OTHER_EXTENSIONS = "*";
+
+  private final FileStats stats = new FileStats();
+
+  private final Map<String, Long> extensions = new HashMap<>();
+
+  /**
+   * Number of files by size bucket: bucket 0 contains empty files, and
+   * bucket {@code i} contains the files of size in
+   * [2<sup>i-1</sup>, 2<sup>i</sup>).
+   */
+  private final long[] sizeBuckets = new long[Long.SIZE];
+
+  private long unreadableDirectories;
+
+  /**
+   * Adds an entry of the tree to the summary.
+   */
+  void add(Path entry, BasicFileAttributes attributes) {
+    stats.add(attributes);
+    if (attributes.isRegularFile() && !attributes.isSymbolicLink()) {
+      addExtension(extensionOf(entry), 1);
+      sizeBuckets[bucketOf(attributes.size())]++;
+    }
+  }
+
+  /**
+   * Counts a directory of the tree which could not be listed, or not
+   * entirely: its entries are missing from the summary.
+   */
+  void addUnreadableDirectory() {
+    unreadableDirectories++;
+  }
+
+  /**
+   * Merges the summary of another tree into this one.
+   * <p>
+   * The statistics, the size buckets and the total number of files by
+   * extension do not depend on the order of the merges. But once
+   * {@link #MAX_EXTENSIONS} extensions are tracked, the extensions
+   * not tracked yet by this summary are counted under
+   * {@link #OTHER_EXTENSIONS}, so the extensions tracked individually
+   * are the first ones seen, and depend on the order of the merges.
+   */
+  void merge(DirectorySummary other) {
+    stats.merge(other.stats);
+    other.extensions.forEach(this::addExtension);
+    for (int i = 0; i < sizeBuckets.length; i++) {
+      sizeBuckets[i] += other.sizeBuckets[i];
+    }
+    unreadableDirectories += other.unreadableDirectories;
+  }
+
+  public FileStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Returns the number of regular files by extension (lower case,
+   * without the dot).
+   */
+  public Map<String, Long> getExtensions() {
+    return Collections.unmodifiableMap(extensions);
+  }
+
+  /**
+   * Returns the number of regular files whose size is in the bucket.
+   *
+   * @param bucket the bucket, from 0 to 63
+   * @see #bucketOf(long)
+   */
+  public long getSizeBucket(int bucket) {
+    return sizeBuckets[bucket];
+  }
+
+  /**
+   * Returns the number of directories which could not be listed, or not
+   * entirely, e.g. because access is denied. If not zero, the summary
+   * is incomplete.
+   */
+  public long getUnreadableDirectories() {
+    return unreadableDirectories;
+  }
+
+  /**
+   * Returns the bucket of a file size: 0 for an empty file, else the
+   * number of bits required to represent the size.
+   */
+  static int bucketOf(long size) {
+    return Long.SIZE - Long.numberOfLeadingZeros(size);
+  }
+
+  private void addExtension(String extension, long count) {
+    if (extensions.size() >= MAX_EXTENSIONS && !extensions.containsKey(extension)) {
+      extension = OTHER_EXTENSIONS;
+    }
+    extensions.merge(extension, count, Long::sum);
+  }
+
+  private static String extensionOf(Path entry) {
+    String name = entry.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    // Hidden files such as ".gitignore" have no extension
+    if (dot <= 0 || dot == name.length() - 1) {
+      return NO_EXTENSION;
+    }
+    return name.substring(dot + 1).toLowerCase(Locale.ROOT);
+  }
+
+}
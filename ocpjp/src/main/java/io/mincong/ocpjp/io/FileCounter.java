@@ -1,6 +1,21 @@
 package io.mincong.ocpjp.io;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiPredicate;
 
 /**
  * File counter, copied from book <i>OCP Java SE 7, Programmer II,
@@ -52,4 +67,256 @@ public final class FileCounter {
     return count;
   }
 
+  /**
+   * Collects the statistics of the given directory (depth=1), in a
+   * single pass: the attributes of each entry are read only once,
+   * instead of calling {@link File#isFile()} then
+   * {@link File#isDirectory()}.
+   *
+   * @throws UncheckedIOException if the directory cannot be listed
+   */
+  public static FileStats stats(File dir) {
+    if (!dir.isDirectory()) {
+      throw new IllegalArgumentException("Not a directory");
+    }
+    FileStats stats = new FileStats();
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir.toPath())) {
+      for (Path entry : entries) {
+        stats.add(Files.readAttributes(entry, BasicFileAttributes.class,
+            LinkOption.NOFOLLOW_LINKS));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return stats;
+  }
+
+  /**
+   * Count number of regular files in the given directory and all its
+   * subdirectories, in parallel using the common fork-join pool.
+   *
+   * @see #countRecursively(File, BiPredicate, ForkJoinPool)
+   */
+  public static long countRegularFilesRecursively(File dir) {
+    return countRecursively(dir,
+        (p, attributes) -> attributes.isRegularFile(),
+        ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Count number of directories in the given directory and all its
+   * subdirectories, in parallel using the common fork-join pool. The
+   * given directory itself is not counted.
+   *
+   * @see #countRecursively(File, BiPredicate, ForkJoinPool)
+   */
+  public static long countDirectoriesRecursively(File dir) {
+    return countRecursively(dir,
+        (p, attributes) -> attributes.isDirectory(),
+        ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Count number of entries matching the filter in the given
+   * directory and all its subdirectories.
+   * <p>
+   * Each subdirectory is listed by its own task, forked in the given
+   * pool, so the directories are listed concurrently. Symbolic links
+   * to directories are not followed.
+   * <p>
+   * Like {@link Files#find(Path, int, BiPredicate,
+   * java.nio.file.FileVisitOption...)}, the filter receives the
+   * attributes of the entry, read only once (without following
+   * symbolic links), and also used to find the subdirectories.
+   * <p>
+   * The tree may change while it is counted. Entries deleted after
+   * their directory is listed are skipped, as well as subdirectories
+   * which cannot be listed, e.g. because access is denied: like
+   * {@link java.nio.file.FileVisitor#visitFileFailed(Object, IOException)}
+   * returning {@code CONTINUE}, their entries are not counted.
+   *
+   * @throws UncheckedIOException if the given directory cannot be
+   *     listed, or an entry cannot be read for another reason than its
+   *     deletion
+   */
+  public static long countRecursively(File dir,
+      BiPredicate<Path, BasicFileAttributes> filter, ForkJoinPool pool) {
+    if (!dir.isDirectory()) {
+      throw new IllegalArgumentException("Not a directory");
+    }
+    return pool.invoke(new CountTask(dir.toPath(), filter, true));
+  }
+
+  /**
+   * Summarizes the given directory and all its subdirectories, in
+   * parallel using the given pool.
+   * <p>
+   * Like {@link #countRecursively(File, BiPredicate, ForkJoinPool)},
+   * each subdirectory is processed by its own task. Each task streams
+   * the entries of its directory into a partial summary, merged into
+   * the summary of the parent directory once done. The subtasks of a
+   * directory are forked by windows of at most 64 tasks: a window is
+   * joined and merged before forking the next one. So the memory used
+   * depends neither on the number of files, nor on the number of
+   * subdirectories of a directory.
+   * <p>
+   * Changes of the tree are handled as by
+   * {@link #countRecursively(File, BiPredicate, ForkJoinPool)}, except
+   * that the subdirectories which cannot be listed, or not entirely,
+   * are counted by {@link DirectorySummary#getUnreadableDirectories()}.
+   *
+   * @throws UncheckedIOException if the given directory cannot be
+   *     listed, or an entry cannot be read for another reason than its
+   *     deletion
+   */
+  public static DirectorySummary summarize(File dir, ForkJoinPool pool) {
+    if (!dir.isDirectory()) {
+      throw new IllegalArgumentException("Not a directory");
+    }
+    return pool.invoke(new SummaryTask(dir.toPath(), true));
+  }
+
+  /**
+   * Reads the attributes of an entry, without following symbolic
+   * links.
+   *
+   * @return the attributes, or {@code null} if the entry was deleted
+   *     since its directory was listed
+   */
+  private static BasicFileAttributes readAttributes(Path entry) throws IOException {
+    try {
+      return Files.readAttributes(entry, BasicFileAttributes.class,
+          LinkOption.NOFOLLOW_LINKS);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Checks that a directory which cannot be listed, or not entirely,
+   * can be skipped: any subdirectory can, but not the root directory.
+   *
+   * @return {@code true} if the directory still exists, but cannot be
+   *     read; {@code false} if it was deleted or replaced since listed
+   * @throws UncheckedIOException if the directory is the root one
+   */
+  private static boolean checkSkippable(IOException e, boolean root) {
+    if (root) {
+      throw new UncheckedIOException(e);
+    }
+    return !(e instanceof NoSuchFileException || e instanceof NotDirectoryException);
+  }
+
+  private static class CountTask extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Path dir;
+
+    private final BiPredicate<Path, BasicFileAttributes> filter;
+
+    private final boolean root;
+
+    private CountTask(Path dir, BiPredicate<Path, BasicFileAttributes> filter,
+        boolean root) {
+      this.dir = dir;
+      this.filter = filter;
+      this.root = root;
+    }
+
+    @Override
+    protected Long compute() {
+      long count = 0;
+      List<CountTask> subtasks = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+        for (Path entry : entries) {
+          BasicFileAttributes attributes = readAttributes(entry);
+          if (attributes == null) {
+            continue;
+          }
+          if (filter.test(entry, attributes)) {
+            count++;
+          }
+          if (attributes.isDirectory()) {
+            CountTask subtask = new CountTask(entry, filter, false);
+            subtask.fork();
+            subtasks.add(subtask);
+          }
+        }
+      } catch (DirectoryIteratorException e) {
+        checkSkippable(e.getCause(), root);
+      } catch (IOException e) {
+        checkSkippable(e, root);
+      }
+      for (CountTask subtask : subtasks) {
+        count += subtask.join();
+      }
+      return count;
+    }
+  }
+
+  private static class SummaryTask extends RecursiveTask<DirectorySummary> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Maximum number of subtasks forked and not joined yet, per
+     * directory.
+     */
+    private static final int SUBTASK_WINDOW = 64;
+
+    private final Path dir;
+
+    private final boolean root;
+
+    private SummaryTask(Path dir, boolean root) {
+      this.dir = dir;
+      this.root = root;
+    }
+
+    @Override
+    protected DirectorySummary compute() {
+      DirectorySummary summary = new DirectorySummary();
+      List<SummaryTask> window = new ArrayList<>(SUBTASK_WINDOW);
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+        for (Path entry : entries) {
+          BasicFileAttributes attributes = readAttributes(entry);
+          if (attributes == null) {
+            continue;
+          }
+          summary.add(entry, attributes);
+          if (attributes.isDirectory()) {
+            SummaryTask subtask = new SummaryTask(entry, false);
+            subtask.fork();
+            window.add(subtask);
+            if (window.size() == SUBTASK_WINDOW) {
+              joinAll(window, summary);
+            }
+          }
+        }
+      } catch (DirectoryIteratorException e) {
+        if (checkSkippable(e.getCause(), root)) {
+          summary.addUnreadableDirectory();
+        }
+      } catch (IOException e) {
+        if (checkSkippable(e, root)) {
+          summary.addUnreadableDirectory();
+        }
+      }
+      joinAll(window, summary);
+      return summary;
+    }
+
+    /**
+     * Joins the subtasks, merges their summaries and clears the window,
+     * so that the summaries can be garbage collected.
+     */
+    private static void joinAll(List<SummaryTask> window, DirectorySummary summary) {
+      for (SummaryTask subtask : window) {
+        summary.merge(subtask.join());
+      }
+      window.clear();
+    }
+  }
+
 }
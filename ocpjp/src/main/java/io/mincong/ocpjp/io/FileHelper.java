@@ -2,13 +2,36 @@ package io.mincong.ocpjp.io;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.zip.Checksum;
 
 /**
  * File helper, copied from book <i>OCP Java SE 7, Programmer II,
@@ -20,6 +43,12 @@ import java.io.Serializable;
  */
 public final class FileHelper {
 
+  /**
+   * Buffers shared by all the pooled copies.
+   */
+  static final BufferPool BUFFER_POOL =
+      new BufferPool(Runtime.getRuntime().availableProcessors());
+
   private FileHelper() {
     // Utility class, do not instantiate
   }
@@ -112,11 +141,352 @@ public final class FileHelper {
     }
   }
 
+  /**
+   * Copies file content of the input file to the output file with a
+   * direct buffer borrowed from a shared {@link BufferPool}.
+   * <p>
+   * Unlike {@link #copyByBytes(File, File)}, no buffer is allocated
+   * per call, and the buffer size is adapted to the file size (from
+   * 64 KB to 1 MB) instead of 1 KB.
+   *
+   * @return the number of bytes copied
+   */
+  static long pooledCopy(File inputFile, File outputFile) throws IOException {
+    try (
+        FileChannel in = new FileInputStream(inputFile).getChannel();
+        FileChannel out = new FileOutputStream(outputFile).getChannel()
+    ) {
+      ByteBuffer buffer = BUFFER_POOL.acquire(in.size());
+      try {
+        long count = 0;
+        while (in.read(buffer) != -1) {
+          buffer.flip();
+          while (buffer.hasRemaining()) {
+            count += out.write(buffer);
+          }
+          buffer.clear();
+        }
+        return count;
+      } finally {
+        BUFFER_POOL.release(buffer);
+      }
+    }
+  }
+
+  /**
+   * Copies file content of the input file to the output file, and
+   * computes the CRC-32C checksum of the data while it is copied. So
+   * the source does not need to be read again to be verified.
+   *
+   * @param verify whether to read the output file once copied, and
+   *     compare its checksum with the checksum of the input file
+   * @return the CRC-32C checksum of the input file
+   * @throws IOException if the copy fails, or if the checksums do not
+   *     match
+   */
+  static long checksummedCopy(File inputFile, File outputFile, boolean verify)
+      throws IOException {
+    Checksum checksum = Crc32c.create();
+    try (
+        FileChannel in = new FileInputStream(inputFile).getChannel();
+        FileChannel out = new FileOutputStream(outputFile).getChannel()
+    ) {
+      // Heap buffer, since Java 8 checksums are computed on arrays
+      ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        checksum.update(buffer.array(), 0, len);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          out.write(buffer);
+        }
+        buffer.clear();
+      }
+    }
+    long expected = checksum.getValue();
+    if (verify) {
+      long actual = checksum(outputFile);
+      if (actual != expected) {
+        throw new IOException(String.format(
+            "Checksum mismatch for %s: expected %08x, but was %08x",
+            outputFile, expected, actual));
+      }
+    }
+    return expected;
+  }
+
+  /**
+   * Computes the CRC-32C checksum of the file.
+   */
+  static long checksum(File file) throws IOException {
+    Checksum checksum = Crc32c.create();
+    try (FileInputStream in = new FileInputStream(file)) {
+      byte[] byteArr = new byte[64 * 1024];
+      int len;
+      while ((len = in.read(byteArr)) != -1) {
+        checksum.update(byteArr, 0, len);
+      }
+    }
+    return checksum.getValue();
+  }
+
+  /**
+   * Updates the output file so that it has the same content as the
+   * input file, by rewriting only the blocks which differ.
+   * <p>
+   * Both files are compared block by block, at the same positions.
+   * Reading is cheaper than writing, so when an existing output file
+   * changed only a little, this is much cheaper than a full copy. The
+   * output file is then truncated or extended to the size of the input
+   * file. A missing output file is created.
+   *
+   * @param blockSize the size of the blocks to compare, in bytes
+   * @return the number of bytes written to the output file
+   */
+  static long incrementalCopy(File inputFile, File outputFile, int blockSize)
+      throws IOException {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("Block size must be positive");
+    }
+    try (
+        FileChannel in = new FileInputStream(inputFile).getChannel();
+        FileChannel out = new RandomAccessFile(outputFile, "rw").getChannel()
+    ) {
+      long size = in.size();
+      ByteBuffer src = ByteBuffer.allocate(blockSize);
+      ByteBuffer dst = ByteBuffer.allocate(blockSize);
+      long written = 0;
+      for (long position = 0; position < size; position += blockSize) {
+        int length = (int) Math.min(blockSize, size - position);
+        readBlock(in, src, position, length);
+        readBlock(out, dst, position, length);
+        if (!src.equals(dst)) {
+          while (src.hasRemaining()) {
+            written += out.write(src, position + src.position());
+          }
+        }
+      }
+      if (out.size() > size) {
+        out.truncate(size);
+      }
+      return written;
+    }
+  }
+
+  /**
+   * Reads a block at the given position, up to {@code length} bytes.
+   * The buffer is flipped, and may contain fewer bytes if the end of
+   * the file is reached.
+   */
+  private static void readBlock(FileChannel channel, ByteBuffer buffer,
+      long position, int length) throws IOException {
+    buffer.clear();
+    buffer.limit(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) == -1) {
+        break;
+      }
+    }
+    buffer.flip();
+  }
+
+  /**
+   * Copies file content of the input file to the output file using
+   * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+   * <p>
+   * The transfer is delegated to the operating system (e.g.
+   * <tt>sendfile</tt> or <tt>copy_file_range</tt> on Linux), so no
+   * user-space buffer is involved. A single call may transfer fewer
+   * bytes than requested, so the transfer is repeated from the new
+   * position until the whole file is copied. If the channel stops
+   * making progress, the remaining bytes are copied through a buffer.
+   *
+   * @return the number of bytes copied
+   */
+  static long channelCopy(File inputFile, File outputFile) throws IOException {
+    try (
+        FileChannel in = new FileInputStream(inputFile).getChannel();
+        FileChannel out = new FileOutputStream(outputFile).getChannel()
+    ) {
+      long size = in.size();
+      long position = 0;
+      while (position < size) {
+        long count = in.transferTo(position, size - position, out);
+        if (count <= 0) {
+          break;
+        }
+        position += count;
+      }
+      // Fall back to a buffered copy for the remaining bytes, if any
+      if (position < size) {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        in.position(position);
+        while (in.read(buffer) != -1) {
+          buffer.flip();
+          while (buffer.hasRemaining()) {
+            position += out.write(buffer);
+          }
+          buffer.clear();
+        }
+      }
+      return position;
+    }
+  }
+
+  /**
+   * Copies file content of the input file to the output file through
+   * memory-mapped windows of the given size.
+   * <p>
+   * A {@link MappedByteBuffer} cannot be larger than
+   * {@link Integer#MAX_VALUE} bytes, so files larger than the window
+   * size are copied window by window: source and destination are
+   * re-mapped at each new position.
+   *
+   * @param windowSize the size of each mapped window, in bytes
+   * @return the number of bytes copied
+   */
+  static long mappedCopy(File inputFile, File outputFile, int windowSize)
+      throws IOException {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("Window size must be positive");
+    }
+    try (
+        FileChannel in = new FileInputStream(inputFile).getChannel();
+        RandomAccessFile raf = new RandomAccessFile(outputFile, "rw");
+        FileChannel out = raf.getChannel()
+    ) {
+      long size = in.size();
+      raf.setLength(size);
+      long position = 0;
+      while (position < size) {
+        long length = Math.min(windowSize, size - position);
+        MappedByteBuffer src = in.map(MapMode.READ_ONLY, position, length);
+        MappedByteBuffer dst = out.map(MapMode.READ_WRITE, position, length);
+        dst.put(src);
+        position += length;
+      }
+      return position;
+    }
+  }
+
+  /**
+   * Copies file content of the input file to the output file in
+   * parallel.
+   * <p>
+   * The file is split into segments of the given size. Each segment
+   * is copied by a task of a fixed thread pool, using positional
+   * {@link FileChannel#read(ByteBuffer, long)} and
+   * {@link FileChannel#write(ByteBuffer, long)}: these methods do not
+   * modify the channel's position, so the channels can be shared
+   * between tasks. Once all the segments are copied, the output file
+   * is forced to the storage device only once.
+   *
+   * @param segmentSize the size of each segment, in bytes
+   * @param parallelism the number of threads copying segments
+   * @return the number of bytes copied
+   */
+  static long parallelCopy(File inputFile, File outputFile, long segmentSize,
+      int parallelism) throws IOException {
+    if (segmentSize <= 0) {
+      throw new IllegalArgumentException("Segment size must be positive");
+    }
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+    try (
+        FileChannel in = new FileInputStream(inputFile).getChannel();
+        FileChannel out = new FileOutputStream(outputFile).getChannel()
+    ) {
+      long size = in.size();
+      List<Future<Long>> futures = new ArrayList<>();
+      for (long start = 0; start < size; start += segmentSize) {
+        long from = start;
+        long to = Math.min(start + segmentSize, size);
+        futures.add(pool.submit(() -> copySegment(in, out, from, to)));
+      }
+      long count = 0;
+      for (Future<Long> future : futures) {
+        count += getSegmentResult(future);
+      }
+      out.force(true);
+      return count;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static long copySegment(FileChannel in, FileChannel out, long from,
+      long to) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(65_536, to - from));
+    long position = from;
+    while (position < to) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), to - position));
+      int len = in.read(buffer, position);
+      if (len == -1) {
+        throw new EOFException("File truncated at position " + position);
+      }
+      buffer.flip();
+      long writePosition = position;
+      while (buffer.hasRemaining()) {
+        writePosition += out.write(buffer, writePosition);
+      }
+      position += len;
+    }
+    return to - from;
+  }
+
+  private static long getSegmentResult(Future<Long> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while copying");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Copies file content of the input file to the output file
+   * asynchronously, without blocking the calling thread.
+   *
+   * @return the future completed with the number of bytes copied
+   * @see #copyAsync(File, File, LongConsumer)
+   */
+  static CompletableFuture<Long> copyAsync(File inputFile, File outputFile) {
+    return copyAsync(inputFile, outputFile, count -> {});
+  }
+
+  /**
+   * Copies file content of the input file to the output file
+   * asynchronously, using {@link java.nio.channels.AsynchronousFileChannel}.
+   * <p>
+   * The copy is cancelled by cancelling the returned future.
+   *
+   * @param progress the callback receiving the number of bytes copied
+   *     so far, called after each write
+   * @return the future completed with the number of bytes copied
+   */
+  static CompletableFuture<Long> copyAsync(File inputFile, File outputFile,
+      LongConsumer progress) {
+    return AsyncCopy.start(inputFile.toPath(), outputFile.toPath(), progress);
+  }
+
+  /**
+   * Reads an object written by {@link #write(File, Serializable)}, or
+   * by {@link #writeCompressed(File, Serializable)}: compressed files
+   * are decompressed transparently.
+   */
   @SuppressWarnings("unchecked")
   static <T> T read(File inputFile, Class<T> type)
       throws IOException, ClassNotFoundException {
     try (
-        FileInputStream fis = new FileInputStream(inputFile);
+        InputStream fis = openInput(inputFile);
         ObjectInputStream ois = new ObjectInputStream(fis)
     ) {
       return (T) ois.readObject();
@@ -132,4 +502,153 @@ public final class FileHelper {
     }
   }
 
+  /**
+   * Writes an object as {@link #write(File, Serializable)} does, but
+   * compressed block by block by {@link BlockCompression}.
+   */
+  static void writeCompressed(File outputFile, Serializable s)
+      throws IOException {
+    try (
+        OutputStream out = BlockCompression.compressingStream(
+            new FileOutputStream(outputFile), BlockCompression.DEFAULT_BLOCK_SIZE);
+        ObjectOutputStream oos = new ObjectOutputStream(out)
+    ) {
+      oos.writeObject(s);
+    }
+  }
+
+  /**
+   * Reads a value written by {@link #write(File, Object, CodecRegistry)},
+   * or by {@link #writeCompressed(File, Object, CodecRegistry)}:
+   * compressed files are decompressed transparently.
+   * <p>
+   * The whole file is read into a buffer by the channel, then decoded
+   * by the codec registered for its type id, without reflection.
+   *
+   * @throws EOFException if the file is truncated
+   * @throws StreamCorruptedException if the type id is unknown or
+   *     unexpected, or the content is otherwise invalid
+   */
+  static <T> T read(File inputFile, Class<T> type, CodecRegistry registry)
+      throws IOException {
+    ByteBuffer buffer;
+    if (BlockCompression.isCompressed(inputFile)) {
+      try (InputStream in = openInput(inputFile)) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        copy(in, bytes);
+        buffer = ByteBuffer.wrap(bytes.toByteArray());
+      }
+    } else {
+      try (FileChannel in = new FileInputStream(inputFile).getChannel()) {
+        buffer = ByteBuffer.allocate((int) in.size());
+        while (buffer.hasRemaining()) {
+          if (in.read(buffer) == -1) {
+            throw new EOFException("File truncated: " + inputFile);
+          }
+        }
+        buffer.flip();
+      }
+    }
+    try {
+      return registry.decode(buffer, type);
+    } catch (BufferUnderflowException e) {
+      throw new EOFException("File truncated: " + inputFile);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Writes a value using the codec registered for its type, as a
+   * compact alternative to {@link #write(File, Serializable)}.
+   */
+  static void write(File outputFile, Object value, CodecRegistry registry)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(registry.sizeOf(value));
+    registry.encode(value, buffer);
+    buffer.flip();
+    try (FileChannel out = new FileOutputStream(outputFile).getChannel()) {
+      while (buffer.hasRemaining()) {
+        out.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Writes a value as {@link #write(File, Object, CodecRegistry)} does,
+   * but compressed block by block by {@link BlockCompression}.
+   */
+  static void writeCompressed(File outputFile, Object value,
+      CodecRegistry registry) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(registry.sizeOf(value));
+    registry.encode(value, buffer);
+    try (
+        OutputStream out = BlockCompression.compressingStream(
+            new FileOutputStream(outputFile), BlockCompression.DEFAULT_BLOCK_SIZE)
+    ) {
+      out.write(buffer.array(), 0, buffer.position());
+    }
+  }
+
+  /**
+   * Copies the input file to the output file, compressing it on the
+   * fly. Blocks of the given size are compressed in parallel, which
+   * trades CPU for less disk I/O on compressible data.
+   *
+   * @return the size of the compressed file, in bytes
+   * @see #decompressedCopy(File, File)
+   */
+  static long compressedCopy(File inputFile, File outputFile, int blockSize,
+      int parallelism) throws IOException {
+    return BlockCompression.compress(inputFile, outputFile, blockSize, parallelism);
+  }
+
+  /**
+   * Copies a file created by {@link #compressedCopy(File, File, int, int)}
+   * to the output file, decompressing it on the fly.
+   *
+   * @return the size of the decompressed file, in bytes
+   */
+  static long decompressedCopy(File inputFile, File outputFile)
+      throws IOException {
+    if (!BlockCompression.isCompressed(inputFile)) {
+      throw new IOException("Not a compressed file: " + inputFile);
+    }
+    try (
+        InputStream in = openInput(inputFile);
+        OutputStream out = new FileOutputStream(outputFile)
+    ) {
+      return copy(in, out);
+    }
+  }
+
+  /**
+   * Opens the file, decompressing it if it was compressed by
+   * {@link BlockCompression}.
+   */
+  private static InputStream openInput(File inputFile) throws IOException {
+    if (!BlockCompression.isCompressed(inputFile)) {
+      return new FileInputStream(inputFile);
+    }
+    InputStream in = new FileInputStream(inputFile);
+    try {
+      return BlockCompression.decompressingStream(in);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  private static long copy(InputStream in, OutputStream out)
+      throws IOException {
+    byte[] byteArr = new byte[64 * 1024];
+    long count = 0;
+    int len;
+    while ((len = in.read(byteArr)) != -1) {
+      out.write(byteArr, 0, len);
+      count += len;
+    }
+    return count;
+  }
+
 }
@@ -0,0 +1,75 @@
+package io.mincong.ocpjp.io;
+
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Statistics of the entries of a directory, collected by
+ * {@link FileCounter#stats(java.io.File)}.
+ *
+ * @author Mincong Huang
+ */
+public final class FileStats {
+
+  private long regularFiles;
+
+  private long directories;
+
+  private long symbolicLinks;
+
+  private long totalBytes;
+
+  /**
+   * Adds an entry to the statistics. Symbolic links are counted as
+   * such, not as their targets.
+   */
+  void add(BasicFileAttributes attributes) {
+    if (attributes.isSymbolicLink()) {
+      symbolicLinks++;
+    } else if (attributes.isDirectory()) {
+      directories++;
+    } else if (attributes.isRegularFile()) {
+      regularFiles++;
+      totalBytes += attributes.size();
+    }
+  }
+
+  /**
+   * Adds the statistics of another directory to this one.
+   */
+  void merge(FileStats other) {
+    regularFiles += other.regularFiles;
+    directories += other.directories;
+    symbolicLinks += other.symbolicLinks;
+    totalBytes += other.totalBytes;
+  }
+
+  public long getRegularFiles() {
+    return regularFiles;
+  }
+
+  public long getDirectories() {
+    return directories;
+  }
+
+  public long getSymbolicLinks() {
+    return symbolicLinks;
+  }
+
+  /**
+   * Returns the total size of the regular files, in bytes.
+   */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "FileStats{"
+        + "regularFiles=" + regularFiles
+        + ", directories=" + directories
+        + ", symbolicLinks=" + symbolicLinks
+        + ", totalBytes=" + totalBytes
+        + '}';
+  }
+
+}
@@ -0,0 +1,233 @@
+package io.mincong.ocpjp.io;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the regular files and directories of a directory (depth=1),
+ * and keeps the counts up to date.
+ * <p>
+ * Unlike {@link FileCounter}, the directory is listed only once, when
+ * the counter is started. The counts are then updated by a background
+ * thread, from the create and delete events of a {@link WatchService}.
+ * So reading the counts does not access the file system at all. If
+ * some events are lost ({@link java.nio.file.StandardWatchEventKinds#OVERFLOW}),
+ * the directory is listed again.
+ * <p>
+ * If the watcher stops by itself, because the directory cannot be
+ * listed again or is no longer accessible, the counts are no longer
+ * up to date: the getters then throw an exception rather than
+ * returning stale counts. See {@link #isLive()}.
+ *
+ * @author Mincong Huang
+ */
+public final class LiveFileCounter implements Closeable {
+
+  private enum Kind {
+    REGULAR_FILE, DIRECTORY, OTHER
+  }
+
+  private final Path dir;
+
+  private final WatchService watchService;
+
+  private final Thread watcher;
+
+  /**
+   * Kind of each entry, by name. Required to know what is removed by a
+   * delete event, since the entry no longer exists. Only accessed by
+   * the watcher thread while it runs.
+   */
+  private final Map<Path, Kind> entries = new HashMap<>();
+
+  private final AtomicLong regularFiles = new AtomicLong();
+
+  private final AtomicLong directories = new AtomicLong();
+
+  /**
+   * The reason why the watcher stopped by itself, or {@code null}.
+   */
+  private volatile IOException failure;
+
+  private volatile boolean closed;
+
+  private LiveFileCounter(Path dir) throws IOException {
+    this.dir = dir;
+    this.watchService = dir.getFileSystem().newWatchService();
+    this.watcher = new Thread(this::watch, "live-file-counter-" + dir.getFileName());
+    this.watcher.setDaemon(true);
+  }
+
+  /**
+   * Lists the directory, then starts watching it.
+   *
+   * @throws IOException if the directory cannot be listed or watched
+   */
+  public static LiveFileCounter start(File dir) throws IOException {
+    if (!dir.isDirectory()) {
+      throw new IllegalArgumentException("Not a directory");
+    }
+    LiveFileCounter counter = new LiveFileCounter(dir.toPath());
+    try {
+      // Registers before listing, so that no event is missed in between
+      counter.dir.register(counter.watchService, ENTRY_CREATE, ENTRY_DELETE);
+      counter.resync();
+    } catch (IOException e) {
+      counter.watchService.close();
+      throw e;
+    }
+    counter.watcher.start();
+    return counter;
+  }
+
+  /**
+   * @throws UncheckedIOException if the counts are no longer updated,
+   *     because the watcher failed
+   */
+  public long getRegularFiles() {
+    checkNotFailed();
+    return regularFiles.get();
+  }
+
+  /**
+   * @throws UncheckedIOException if the counts are no longer updated,
+   *     because the watcher failed
+   */
+  public long getDirectories() {
+    checkNotFailed();
+    return directories.get();
+  }
+
+  /**
+   * Returns {@code true} if the counts are kept up to date: the counter
+   * is neither closed nor failed.
+   */
+  public boolean isLive() {
+    return !closed && failure == null;
+  }
+
+  private void checkNotFailed() {
+    IOException e = failure;
+    if (e != null) {
+      throw new UncheckedIOException("Counts are no longer updated", e);
+    }
+  }
+
+  /**
+   * Lists the directory again, and replaces the counts. Called by the
+   * watcher thread, or by the caller once closed.
+   */
+  void resync() throws IOException {
+    entries.clear();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (Path entry : stream) {
+        entries.put(entry.getFileName(), kindOf(entry));
+      }
+    }
+    long files = 0;
+    long dirs = 0;
+    for (Kind kind : entries.values()) {
+      if (kind == Kind.REGULAR_FILE) {
+        files++;
+      } else if (kind == Kind.DIRECTORY) {
+        dirs++;
+      }
+    }
+    regularFiles.set(files);
+    directories.set(dirs);
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == OVERFLOW) {
+            resync();
+          } else {
+            Path name = (Path) event.context();
+            if (event.kind() == ENTRY_CREATE) {
+              update(name, kindOf(dir.resolve(name)));
+            } else {
+              update(name, null);
+            }
+          }
+        }
+        if (!key.reset()) {
+          failure = new IOException("Directory no longer accessible: " + dir);
+          return;
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // Closed
+    } catch (IOException e) {
+      if (!closed) {
+        failure = e;
+      }
+    }
+  }
+
+  /**
+   * Updates the kind of the entry, {@code null} meaning deleted.
+   */
+  private void update(Path name, Kind kind) {
+    Kind previous = kind == null ? entries.remove(name) : entries.put(name, kind);
+    counter(previous, -1);
+    counter(kind, 1);
+  }
+
+  private void counter(Kind kind, int delta) {
+    if (kind == Kind.REGULAR_FILE) {
+      regularFiles.addAndGet(delta);
+    } else if (kind == Kind.DIRECTORY) {
+      directories.addAndGet(delta);
+    }
+  }
+
+  private static Kind kindOf(Path entry) {
+    if (Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS)) {
+      return Kind.REGULAR_FILE;
+    }
+    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+      return Kind.DIRECTORY;
+    }
+    return Kind.OTHER;
+  }
+
+  /**
+   * Stops watching the directory, and waits for the watcher thread to
+   * terminate. The counts are no longer updated, but can still be
+   * read.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    watchService.close();
+    watcher.interrupt();
+    try {
+      watcher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while closing");
+    }
+  }
+
+}
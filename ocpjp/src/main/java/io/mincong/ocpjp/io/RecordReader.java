@@ -0,0 +1,158 @@
+package io.mincong.ocpjp.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the records written by a {@link RecordWriter}, one at a time.
+ * <p>
+ * The file is read by chunks, and each record is only decoded when
+ * requested by {@link #next()}. So the memory used does not depend on
+ * the number of records in the file, but on the size of the largest
+ * record.
+ *
+ * @param <T> the type of the records
+ * @author Mincong Huang
+ */
+final class RecordReader<T> implements Iterator<T>, Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+
+  private final CodecRegistry registry;
+
+  private final Class<T> type;
+
+  private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+  RecordReader(File file, Class<T> type, CodecRegistry registry)
+      throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.registry = registry;
+    this.type = type;
+    // The buffer is kept in read mode
+    buffer.flip();
+  }
+
+  /**
+   * @throws UncheckedIOException if the file cannot be read, or ends
+   *     with a truncated record length
+   */
+  @Override
+  public boolean hasNext() {
+    try {
+      if (fill(Integer.BYTES)) {
+        return true;
+      }
+      if (buffer.hasRemaining()) {
+        throw new EOFException("Record length truncated: "
+            + buffer.remaining() + " trailing bytes");
+      }
+      return false;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @throws UncheckedIOException if the file cannot be read, the last
+   *     record is truncated, the record length is invalid, or does not
+   *     match the length of the decoded value
+   */
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    int length = buffer.getInt();
+    try {
+      if (length < 0 || length > RecordWriter.MAX_RECORD_SIZE) {
+        throw new IOException("Invalid record length: " + length);
+      }
+      if (!fill(length)) {
+        throw new EOFException("Record truncated");
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    ByteBuffer record = buffer.slice();
+    record.limit(length);
+    buffer.position(buffer.position() + length);
+    T value;
+    try {
+      value = registry.decode(record, type);
+    } catch (BufferUnderflowException e) {
+      throw new UncheckedIOException(new EOFException("Record shorter than its value"));
+    }
+    if (record.hasRemaining()) {
+      throw new UncheckedIOException(new StreamCorruptedException(
+          "Record longer than its value: " + record.remaining() + " unread bytes"));
+    }
+    return value;
+  }
+
+  /**
+   * Returns a sequential stream of the remaining records. Closing the
+   * stream closes this reader.
+   */
+  Stream<T> stream() {
+    Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(this,
+        Spliterator.ORDERED | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(() -> {
+      try {
+        close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Ensures that at least {@code size} bytes are available in the
+   * buffer, reading more of the file if needed.
+   *
+   * @return {@code false} if the end of file is reached before
+   */
+  private boolean fill(int size) throws IOException {
+    if (buffer.remaining() >= size) {
+      return true;
+    }
+    if (size > buffer.capacity()) {
+      // Record larger than the buffer
+      ByteBuffer larger = ByteBuffer.allocate(size);
+      larger.put(buffer);
+      buffer = larger;
+    } else {
+      buffer.compact();
+    }
+    while (buffer.position() < size) {
+      if (channel.read(buffer) == -1) {
+        buffer.flip();
+        return false;
+      }
+    }
+    buffer.flip();
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+}
@@ -0,0 +1,124 @@
+package io.mincong.ocpjp.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends records to a file, each record being a value encoded by a
+ * {@link CodecRegistry}.
+ * <p>
+ * A record is written as its length (4 bytes), followed by its type
+ * id and payload. Records are accumulated in a buffer and written
+ * when the buffer is full, so many small records result in a few
+ * large writes. Records can then be read lazily by a
+ * {@link RecordReader}.
+ *
+ * @author Mincong Huang
+ */
+final class RecordWriter implements Closeable {
+
+  /**
+   * Maximum length of a record, in bytes, length prefix excluded. A
+   * larger length read by a {@link RecordReader} means that the file
+   * is corrupted.
+   */
+  static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+
+  private final CodecRegistry registry;
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+  /**
+   * Opens a writer appending records to the file. The file is created
+   * if it does not exist.
+   */
+  RecordWriter(File file, CodecRegistry registry) throws IOException {
+    this.channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+    this.registry = registry;
+  }
+
+  /**
+   * Appends a record. If the value cannot be encoded, nothing is
+   * appended and the writer can still be used.
+   *
+   * @throws IOException if the record cannot be written, or is larger
+   *     than {@link #MAX_RECORD_SIZE}
+   * @throws IllegalStateException if the codec does not encode the
+   *     number of bytes returned by its size
+   */
+  void append(Object value) throws IOException {
+    int length = registry.sizeOf(value);
+    if (length > MAX_RECORD_SIZE) {
+      throw new IOException("Record too large: " + length + " bytes");
+    }
+    int recordSize = Integer.BYTES + length;
+    if (recordSize > buffer.remaining()) {
+      flush();
+    }
+    if (recordSize > buffer.capacity()) {
+      // Too large to be buffered, written on its own
+      ByteBuffer large = ByteBuffer.allocate(recordSize);
+      encode(value, length, large);
+      large.flip();
+      writeFully(large);
+    } else {
+      encode(value, length, buffer);
+    }
+  }
+
+  /**
+   * Encodes the record into the target. On failure, the position of the
+   * target is restored, so that a partial record is never written.
+   */
+  private void encode(Object value, int length, ByteBuffer target) {
+    int start = target.position();
+    try {
+      target.putInt(length);
+      registry.encode(value, target);
+      int encoded = target.position() - start - Integer.BYTES;
+      if (encoded != length) {
+        throw new IllegalStateException(
+            "Encoded " + encoded + " bytes, but expected " + length);
+      }
+    } catch (RuntimeException e) {
+      target.position(start);
+      throw e;
+    }
+  }
+
+  /**
+   * Writes the buffered records to the file.
+   */
+  void flush() throws IOException {
+    buffer.flip();
+    writeFully(buffer);
+    buffer.clear();
+  }
+
+  private void writeFully(ByteBuffer src) throws IOException {
+    while (src.hasRemaining()) {
+      channel.write(src);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+}
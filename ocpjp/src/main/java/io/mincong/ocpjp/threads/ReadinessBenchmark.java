@@ -0,0 +1,146 @@
+package io.mincong.ocpjp.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways for white walkers to wait for their king:
+ * <ul>
+ *   <li>{@link ReadinessGate};</li>
+ *   <li>{@code wait()} and {@code notifyAll()} on a monitor, as
+ *   {@link ThreadWait} does, but checking a flag in a loop so that no
+ *   wake-up is lost;</li>
+ *   <li>{@code join()} on the king thread, as {@link ThreadJoin}
+ *   does.</li>
+ * </ul>
+ * For each number of walkers, all of them are started and waiting,
+ * then the king gets ready: the time until all the walkers completed
+ * is printed: this is the wake-up latency. The walkers are platform
+ * threads, so run it on a multi-core machine: on a single core, the
+ * wake-ups are serialized whatever the signal.
+ * <p>
+ * Usage: {@code ReadinessBenchmark [maxWalkers] [iterations]}
+ *
+ * @author Mincong Huang
+ */
+public class ReadinessBenchmark {
+
+  public static void main(String... args) throws Exception {
+    int maxWalkers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    System.out.printf("%-12s %8s %14s%n", "signal", "walkers", "wake-up us");
+    for (int n = 1; n <= maxWalkers; n *= 10) {
+      int walkers = n;
+      report("gate", walkers, best(iterations, () -> withGate(walkers)));
+      report("notifyAll", walkers, best(iterations, () -> withNotifyAll(walkers)));
+      report("join", walkers, best(iterations, () -> withJoin(walkers)));
+    }
+  }
+
+  private static long withGate(int walkers) throws InterruptedException {
+    ReadinessGate gate = new ReadinessGate();
+    Runnable walker = () -> {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    return measure(walkers, walker, gate::open, null);
+  }
+
+  private static long withNotifyAll(int walkers) throws InterruptedException {
+    Object king = new Object();
+    boolean[] ready = {false};
+    Runnable walker = () -> {
+      synchronized (king) {
+        while (!ready[0]) {
+          try {
+            king.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+      }
+    };
+    return measure(walkers, walker, () -> {
+      synchronized (king) {
+        ready[0] = true;
+        king.notifyAll();
+      }
+    }, null);
+  }
+
+  private static long withJoin(int walkers) throws InterruptedException {
+    CountDownLatch prepare = new CountDownLatch(1);
+    Thread king = new Thread(() -> {
+      try {
+        prepare.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    king.start();
+    Runnable walker = () -> {
+      try {
+        king.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    return measure(walkers, walker, prepare::countDown, king);
+  }
+
+  /**
+   * Starts the walkers, waits until they are all blocked, then signals
+   * the readiness of the king, and returns the time until all the
+   * walkers terminated, in nanoseconds.
+   */
+  private static long measure(int walkers, Runnable walker, Runnable ready,
+      Thread king) throws InterruptedException {
+    List<Thread> threads = new ArrayList<>(walkers);
+    for (int i = 0; i < walkers; i++) {
+      Thread t = new Thread(walker);
+      threads.add(t);
+      t.start();
+    }
+    for (Thread t : threads) {
+      while (t.getState() != Thread.State.WAITING) {
+        Thread.yield();
+      }
+    }
+    long start = System.nanoTime();
+    ready.run();
+    for (Thread t : threads) {
+      t.join();
+    }
+    long elapsed = System.nanoTime() - start;
+    if (king != null) {
+      king.join();
+    }
+    return elapsed;
+  }
+
+  private static long best(int iterations, Measure measure) throws InterruptedException {
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < iterations; i++) {
+      best = Math.min(best, measure.run());
+    }
+    return best;
+  }
+
+  private static void report(String name, int walkers, long nanos) {
+    System.out.printf("%-12s %8d %14d%n", name, walkers, TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  @FunctionalInterface
+  private interface Measure {
+
+    long run() throws InterruptedException;
+  }
+
+}
@@ -0,0 +1,159 @@
+package io.mincong.ocpjp.threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
+/**
+ * A gate which blocks its waiters until it is opened, and which can be
+ * closed again for the next generation of waiters.
+ * <p>
+ * It replaces the readiness signaling of {@link ThreadWait} and
+ * {@link ThreadJoin}:
+ * <ul>
+ *   <li>{@link ThreadWait} waits on the monitor of the king, so a
+ *   walker which starts waiting after {@code notifyAll()} misses the
+ *   wake-up, and every walker woken up must reacquire the monitor, one
+ *   at a time.</li>
+ *   <li>{@link ThreadJoin} joins the king thread, so the king can only
+ *   be ready once, when its thread terminates.</li>
+ * </ul>
+ * Here, the state is held by an {@link AbstractQueuedSynchronizer}:
+ * waiting on an open gate returns immediately, and opening the gate
+ * wakes up the queued waiters without any lock. Like a
+ * {@link java.util.concurrent.CountDownLatch}, but reusable: each
+ * {@link #reset()} starts a new generation. A waiter is released when
+ * the gate of its generation opens, even if the gate is reset before
+ * the waiter wakes up.
+ *
+ * @author Mincong Huang
+ */
+public class ReadinessGate {
+
+  private final Sync sync = new Sync();
+
+  /**
+   * The state of the synchronizer: the generation in the high bits,
+   * and whether the gate is open in the lowest bit.
+   */
+  private static final class Sync extends AbstractQueuedSynchronizer {
+
+    private static final long serialVersionUID = 1L;
+
+    static int generationOf(int state) {
+      return state >>> 1;
+    }
+
+    static boolean isOpen(int state) {
+      return (state & 1) != 0;
+    }
+
+    /**
+     * Succeeds if the gate is open, or if the generation of the waiter
+     * is over: a generation only ends once its gate has been opened.
+     */
+    @Override
+    protected int tryAcquireShared(int generation) {
+      int state = getState();
+      return isOpen(state) || generationOf(state) != generation ? 1 : -1;
+    }
+
+    @Override
+    protected boolean tryReleaseShared(int ignored) {
+      for (;;) {
+        int state = getState();
+        if (isOpen(state)) {
+          return false;
+        }
+        if (compareAndSetState(state, state | 1)) {
+          return true;
+        }
+      }
+    }
+
+    boolean reset() {
+      for (;;) {
+        int state = getState();
+        if (!isOpen(state)) {
+          return false;
+        }
+        if (compareAndSetState(state, (generationOf(state) + 1) << 1)) {
+          return true;
+        }
+      }
+    }
+
+    int generation() {
+      return generationOf(getState());
+    }
+
+    boolean open() {
+      return isOpen(getState());
+    }
+  }
+
+  /**
+   * Waits until the gate of the current generation is open.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void await() throws InterruptedException {
+    sync.acquireSharedInterruptibly(sync.generation());
+  }
+
+  /**
+   * Waits until the gate of the current generation is open, or until
+   * the timeout elapses.
+   *
+   * @return {@code true} if the gate opened, {@code false} if the
+   *     timeout elapsed before
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+    return sync.tryAcquireSharedNanos(sync.generation(), unit.toNanos(timeout));
+  }
+
+  /**
+   * Opens the gate, releasing all the waiters of the current
+   * generation. Does nothing if the gate is already open.
+   *
+   * @return {@code true} if the gate was closed
+   */
+  public boolean open() {
+    return sync.releaseShared(0);
+  }
+
+  /**
+   * Closes the gate and starts a new generation, so that the next
+   * waiters block until the gate opens again. Does nothing if the gate
+   * is already closed.
+   *
+   * @return {@code true} if the gate was open
+   */
+  public boolean reset() {
+    return sync.reset();
+  }
+
+  public boolean isOpen() {
+    return sync.open();
+  }
+
+  /**
+   * Returns the number of the current generation, starting at 0.
+   */
+  public int getGeneration() {
+    return sync.generation();
+  }
+
+  /**
+   * Returns an estimate of the number of threads waiting for the gate.
+   */
+  public int getWaiterCount() {
+    return sync.getQueueLength();
+  }
+
+  @Override
+  public String toString() {
+    return "ReadinessGate{generation=" + getGeneration() + ", open=" + isOpen() + "}";
+  }
+
+}
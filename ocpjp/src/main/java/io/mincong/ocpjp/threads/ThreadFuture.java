@@ -0,0 +1,151 @@
+package io.mincong.ocpjp.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Same story as {@link ThreadJoin}, but the white walkers do not wait
+ * for the king: they register what to do once he is ready.
+ * <p>
+ * In {@link ThreadJoin}, each walker is a thread blocked in
+ * {@code join()}, then it polls {@code king.isReady}. Here, the king
+ * exposes his readiness as a {@link CompletionStage}, and each walker
+ * is a continuation of it: no thread is blocked, so thousands of
+ * walkers cost a few objects each. The timeout is shared too: a single
+ * timer fails the readiness after {@link #MS_TO_WAIT}, instead of one
+ * timed join per walker.
+ * <p>
+ * Usage: {@code ThreadFuture [walkers]}
+ *
+ * @author Mincong Huang
+ */
+public class ThreadFuture {
+
+  /**
+   * Milliseconds required to let the king be ready.
+   *
+   * @see #MS_TO_WAIT
+   */
+  private static final int MS_TO_READY = 100;
+
+  /**
+   * Milliseconds required to wait the king.
+   *
+   * @see #MS_TO_READY
+   */
+  private static final int MS_TO_WAIT = 1_000;
+
+  public static void main(String... args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+    ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    try {
+      NightKing king = new NightKing();
+      CompletableFuture<NightKing> readiness =
+          withTimeout(king.whenReady(), MS_TO_WAIT, TimeUnit.MILLISECONDS, timer);
+
+      List<CompletableFuture<Boolean>> walkers = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        walkers.add(new WhiteWalker(String.valueOf(i), readiness).follow());
+      }
+      king.start();
+      long followers = walkers.stream().filter(CompletableFuture::join).count();
+      System.out.println(followers + " of " + count + " walkers follow.");
+    } finally {
+      timer.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns a future completed as the given stage, or failed with a
+   * {@link TimeoutException} if the stage is not completed after the
+   * timeout. This is {@code CompletableFuture#orTimeout} of Java 9.
+   */
+  static <T> CompletableFuture<T> withTimeout(CompletionStage<T> stage,
+      long timeout, TimeUnit unit, ScheduledExecutorService timer) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    ScheduledFuture<?> task = timer.schedule(
+        () -> result.completeExceptionally(new TimeoutException()), timeout, unit);
+    stage.whenComplete((value, e) -> {
+      task.cancel(false);
+      if (e != null) {
+        result.completeExceptionally(e);
+      } else {
+        result.complete(value);
+      }
+    });
+    return result;
+  }
+
+  public static class WhiteWalker {
+
+    private final String name;
+
+    private final CompletionStage<NightKing> readiness;
+
+    WhiteWalker(String name, CompletionStage<NightKing> readiness) {
+      this.name = name;
+      this.readiness = readiness;
+    }
+
+    /**
+     * Registers the walker as a follower of the king, without blocking.
+     * The continuation runs in the thread completing the readiness:
+     * the king, or the timer.
+     *
+     * @return a future completed with {@code true} if the walker
+     *     follows the king, {@code false} if he is dead
+     */
+    CompletableFuture<Boolean> follow() {
+      System.out.println(name + " is waiting...");
+      return readiness.handle((king, e) -> {
+        if (e == null) {
+          System.out.println(name + " follows.");
+          return true;
+        }
+        System.out.println(name + " is dead (king is not ready).");
+        return false;
+      }).toCompletableFuture();
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  public static class NightKing extends Thread {
+
+    private final CompletableFuture<NightKing> ready = new CompletableFuture<>();
+
+    /**
+     * Returns a stage completed when the king is ready. It is a
+     * dependent of the readiness of the king, so the callers cannot
+     * complete it in his place.
+     */
+    public CompletionStage<NightKing> whenReady() {
+      return ready.thenApply(Function.identity());
+    }
+
+    @Override
+    public void run() {
+      System.out.println("Night King is preparing...");
+      try {
+        Thread.sleep(MS_TO_READY);
+      } catch (InterruptedException e) {
+        ready.completeExceptionally(e);
+        return;
+      }
+      System.out.println("Night King is ready.");
+      ready.complete(this);
+    }
+  }
+
+}
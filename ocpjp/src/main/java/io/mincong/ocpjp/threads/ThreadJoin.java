@@ -6,6 +6,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Mincong Huang
+ * @see ThreadFuture non-blocking version, where the walkers are
+ *     continuations of the readiness of the king
  */
 public class ThreadJoin {
 
@@ -37,10 +39,17 @@ public class ThreadJoin {
         new WhiteWalker("C", king)
     );
     king.start();
-    walkers.forEach(Thread::start);
+    if (args.length > 0) {
+      // Runs the walkers on the given executor: platform or virtual
+      try (WorkerExecutor executor = WorkerExecutor.of(args[0])) {
+        walkers.forEach(executor::submit);
+      }
+    } else {
+      walkers.forEach(walker -> new Thread(walker).start());
+    }
   }
 
-  public static class WhiteWalker extends Thread {
+  public static class WhiteWalker implements Runnable {
 
     private String name;
 
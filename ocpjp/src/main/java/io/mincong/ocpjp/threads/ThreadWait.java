@@ -37,10 +37,17 @@ public class ThreadWait {
         new WhiteWalker("C", king)
     );
     king.start();
-    walkers.forEach(Thread::start);
+    if (args.length > 0) {
+      // Runs the walkers on the given executor: platform or virtual
+      try (WorkerExecutor executor = WorkerExecutor.of(args[0])) {
+        walkers.forEach(executor::submit);
+      }
+    } else {
+      walkers.forEach(walker -> new Thread(walker).start());
+    }
   }
 
-  public static class WhiteWalker extends Thread {
+  public static class WhiteWalker implements Runnable {
 
     private String name;
 
@@ -0,0 +1,161 @@
+package io.mincong.ocpjp.threads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Scales the number of white walkers waiting for their king, on
+ * platform threads then on virtual threads.
+ * <p>
+ * The walkers wait in two ways:
+ * <ul>
+ *   <li>latch: on a {@link CountDownLatch}, a {@code java.util.concurrent}
+ *   synchronizer, which unmounts a blocked virtual thread from its
+ *   carrier;</li>
+ *   <li>monitor: {@code wait()} within a {@code synchronized} block, as
+ *   {@link ThreadWait} does. Before JDK 24, a virtual thread waiting on
+ *   a monitor pins its carrier thread, so at most one walker per
+ *   carrier can wait at once (the scheduler adds carriers, up to 256 by
+ *   default): the other ones are not even started. The startup is then
+ *   given up after a timeout, and the number of walkers waiting is
+ *   printed.</li>
+ * </ul>
+ * For each number of walkers, it prints:
+ * <ul>
+ *   <li>the startup latency: the time until all the walkers are
+ *   waiting;</li>
+ *   <li>the heap used while they are waiting, per walker. The stacks
+ *   of platform threads are allocated outside of the heap, so their
+ *   footprint is larger than printed: up to the thread stack size
+ *   ({@code -Xss}, 1 MB by default on 64-bit Linux) per walker;</li>
+ *   <li>the wake-up latency: the time until all the walkers completed
+ *   once the king is ready.</li>
+ * </ul>
+ * Platform threads are limited by the OS, so they are only started up
+ * to a maximum number of walkers. Virtual threads are skipped before
+ * JDK 21.
+ * <p>
+ * Usage: {@code WorkerBenchmark [maxWalkers] [maxPlatformWalkers] [startupTimeoutSeconds]}
+ *
+ * @author Mincong Huang
+ */
+public class WorkerBenchmark {
+
+  /**
+   * The way the walkers wait for their king.
+   */
+  private interface King {
+
+    void await() throws InterruptedException;
+
+    void ready();
+  }
+
+  public static void main(String... args) throws Exception {
+    int maxWalkers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int maxPlatformWalkers = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+    long timeoutSeconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+
+    System.out.printf("%-10s %-8s %10s %12s %14s %12s%n",
+        "executor", "model", "walkers", "startup ms", "heap B/walker", "wake-up ms");
+    for (int walkers = 3; walkers <= maxWalkers; walkers = walkers < 1_000 ? 1_000 : walkers * 10) {
+      if (walkers <= maxPlatformWalkers) {
+        run(WorkerExecutor::platform, "latch", WorkerBenchmark::latch, walkers, timeoutSeconds);
+        run(WorkerExecutor::platform, "monitor", WorkerBenchmark::monitor, walkers, timeoutSeconds);
+      }
+      if (WorkerExecutor.isVirtualSupported()) {
+        run(WorkerExecutor::virtual, "latch", WorkerBenchmark::latch, walkers, timeoutSeconds);
+        run(WorkerExecutor::virtual, "monitor", WorkerBenchmark::monitor, walkers, timeoutSeconds);
+      }
+    }
+    if (WorkerExecutor.isVirtualSupported()) {
+      System.out.println("Note: before JDK 24, virtual walkers waiting on a monitor pin"
+          + " their carrier thread, see the monitor model above");
+    } else {
+      System.out.println("Virtual threads skipped: JDK 21+ required");
+    }
+  }
+
+  private static King latch() {
+    CountDownLatch latch = new CountDownLatch(1);
+    return new King() {
+      @Override
+      public void await() throws InterruptedException {
+        latch.await();
+      }
+
+      @Override
+      public void ready() {
+        latch.countDown();
+      }
+    };
+  }
+
+  private static King monitor() {
+    return new King() {
+      private boolean ready;
+
+      @Override
+      public synchronized void await() throws InterruptedException {
+        while (!ready) {
+          wait();
+        }
+      }
+
+      @Override
+      public synchronized void ready() {
+        ready = true;
+        notifyAll();
+      }
+    };
+  }
+
+  private static void run(Supplier<WorkerExecutor> factory, String model,
+      Supplier<King> kingFactory, int walkers, long timeoutSeconds)
+      throws InterruptedException {
+    long heapBefore = usedHeap();
+    CountDownLatch waiting = new CountDownLatch(walkers);
+    King king = kingFactory.get();
+    CountDownLatch done = new CountDownLatch(walkers);
+
+    long start = System.nanoTime();
+    WorkerExecutor executor = factory.get();
+    try {
+      for (int i = 0; i < walkers; i++) {
+        executor.submit(() -> {
+          waiting.countDown();
+          try {
+            king.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          done.countDown();
+        });
+      }
+      boolean started = waiting.await(timeoutSeconds, TimeUnit.SECONDS);
+      long startup = System.nanoTime() - start;
+      long heap = usedHeap() - heapBefore;
+
+      long ready = System.nanoTime();
+      king.ready();
+      done.await();
+      long wakeUp = System.nanoTime() - ready;
+
+      System.out.printf("%-10s %-8s %10d %12d %14d %12d%s%n", executor, model, walkers,
+          TimeUnit.NANOSECONDS.toMillis(startup), heap / walkers,
+          TimeUnit.NANOSECONDS.toMillis(wakeUp),
+          started ? "" : "  (timeout: " + (walkers - waiting.getCount()) + " waiting, pinned?)");
+    } finally {
+      king.ready();
+      executor.close();
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
@@ -0,0 +1,129 @@
+package io.mincong.ocpjp.threads;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs each worker in its own thread, as the demos of this package do,
+ * either on platform threads or on virtual threads.
+ * <p>
+ * A platform thread is backed by an OS thread, with its own stack:
+ * blocking many of them, like the white walkers waiting for their
+ * king, costs memory and startup time. A virtual thread (JDK 21+) is
+ * scheduled by the JVM on a few carrier threads, and is unmounted from
+ * its carrier while blocked on I/O, {@link Thread#sleep(long)} or a
+ * {@code java.util.concurrent} synchronizer, so a million of them can
+ * wait at once.
+ * <p>
+ * But before JDK 24, a virtual thread blocked in {@link Object#wait()}
+ * within a {@code synchronized} block, or in {@link Thread#join()} on
+ * a platform thread, is not unmounted: it pins its carrier thread. This
+ * is how the walkers of {@link ThreadWait} and {@link ThreadJoin} wait,
+ * so on JDK 21 to 23, running them on virtual threads does not scale
+ * beyond the number of carriers. See {@link WorkerBenchmark}.
+ * <p>
+ * This project targets Java 8, so the virtual executor is created by
+ * reflection, and is only available when running on JDK 21 or later.
+ *
+ * @author Mincong Huang
+ */
+public final class WorkerExecutor implements AutoCloseable {
+
+  private static final Method NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+
+  private final String name;
+
+  private final ExecutorService executor;
+
+  private WorkerExecutor(String name, ExecutorService executor) {
+    this.name = name;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns an executor starting a new platform thread per worker,
+   * unless an idle thread of a previous worker can be reused.
+   */
+  public static WorkerExecutor platform() {
+    return new WorkerExecutor("platform", Executors.newCachedThreadPool());
+  }
+
+  /**
+   * Returns an executor starting a new virtual thread per worker.
+   *
+   * @throws UnsupportedOperationException if the JVM does not support
+   *     virtual threads, i.e. before JDK 21
+   */
+  public static WorkerExecutor virtual() {
+    if (NEW_VIRTUAL_EXECUTOR == null) {
+      throw new UnsupportedOperationException(
+          "Virtual threads require JDK 21+, current: " + System.getProperty("java.version"));
+    }
+    try {
+      return new WorkerExecutor("virtual", (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null));
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Cannot create virtual thread executor", e);
+    }
+  }
+
+  /**
+   * Returns the executor of the given name: "platform" or "virtual".
+   */
+  public static WorkerExecutor of(String name) {
+    switch (name) {
+      case "platform":
+        return platform();
+      case "virtual":
+        return virtual();
+      default:
+        throw new IllegalArgumentException("Unknown executor: " + name);
+    }
+  }
+
+  public static boolean isVirtualSupported() {
+    return NEW_VIRTUAL_EXECUTOR != null;
+  }
+
+  private static Method findVirtualExecutorFactory() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Future<?> submit(Runnable worker) {
+    return executor.submit(worker);
+  }
+
+  /**
+   * Waits for the submitted workers to complete, then releases the
+   * threads. If interrupted, the workers are interrupted too.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.DAYS)) {
+        // Keep waiting
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+}
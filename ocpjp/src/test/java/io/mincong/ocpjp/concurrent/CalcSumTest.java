@@ -0,0 +1,165 @@
+package io.mincong.ocpjp.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Mincong Huang
+ */
+public class CalcSumTest {
+
+  private final int[] values = new Random(0).ints(100_000, -100, 100).toArray();
+
+  private final Random random = new Random(0);
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void tearDown() throws Exception {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void compute_rangesPartitionArray() throws Exception {
+    // Each value must be summed exactly once, whatever the length and
+    // the unit size
+    for (int length = 0; length <= 100; length++) {
+      for (int unitSize = 1; unitSize <= 20; unitSize++) {
+        List<int[]> ranges = Collections.synchronizedList(new ArrayList<>());
+        pool.invoke(new CalcSum(new int[length], unitSize,
+            (startPos, endPos, s) -> ranges.add(new int[] {startPos, endPos})));
+
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int expectedStart = 0;
+        for (int[] range : ranges) {
+          assertThat(range[0]).isEqualTo(expectedStart);
+          assertThat(range[1] - range[0]).isBetween(0, unitSize);
+          expectedStart = range[1];
+        }
+        assertThat(expectedStart).isEqualTo(length);
+      }
+    }
+  }
+
+  @Test
+  public void compute_matchesSequentialSum() throws Exception {
+    for (int i = 0; i < 200; i++) {
+      int[] array = randomArray(5_000);
+      int unitSize = 1 + random.nextInt(64);
+      int sum = pool.invoke(new CalcSum(array, unitSize, CalcSum.LeafTracer.NONE));
+      assertThat(sum)
+          .as("length=%d, unitSize=%d", array.length, unitSize)
+          .isEqualTo(sequentialSum(array));
+    }
+  }
+
+  @Test
+  public void sum_matchesSequentialSum() throws Exception {
+    for (int i = 0; i < 200; i++) {
+      int[] array = randomArray(50_000);
+      int threshold = 1 + random.nextInt(1_000);
+      assertThat(CalcSum.sum(array, CalcSum.LeafTracer.NONE, pool, threshold))
+          .as("length=%d, threshold=%d", array.length, threshold)
+          .isEqualTo(sequentialSum(array));
+      assertThat(CalcSum.sumAsLong(array, pool))
+          .as("length=%d", array.length)
+          .isEqualTo(IntStream.of(array).asLongStream().sum());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void compute_invalidUnitSize() throws Exception {
+    new CalcSum(values, 0, CalcSum.LeafTracer.NONE);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void sum_invalidThreshold() throws Exception {
+    CalcSum.sum(values, CalcSum.LeafTracer.NONE, pool, 0);
+  }
+
+  @Test
+  public void sum() throws Exception {
+    assertThat(CalcSum.sum(values)).isEqualTo(IntStream.of(values).sum());
+  }
+
+  @Test
+  public void sum_tracer() throws Exception {
+    AtomicInteger leaves = new AtomicInteger();
+    LongAdder traced = new LongAdder();
+    int sum = CalcSum.sum(values, (startPos, endPos, s) -> {
+      leaves.incrementAndGet();
+      traced.add(s);
+    }, pool);
+
+    assertThat(leaves.get()).isGreaterThan(1);
+    assertThat(traced.intValue()).isEqualTo(sum);
+  }
+
+  @Test
+  public void sumAsLong() throws Exception {
+    int[] large = new int[100_000];
+    Arrays.fill(large, Integer.MAX_VALUE);
+    assertThat(CalcSum.sumAsLong(large))
+        .isEqualTo(100_000L * Integer.MAX_VALUE);
+    assertThat(CalcSum.sumAsLong(values))
+        .isEqualTo(IntStream.of(values).asLongStream().sum());
+  }
+
+  @Test
+  public void sumExact() throws Exception {
+    long[] large = new long[100_000];
+    Arrays.fill(large, Long.MAX_VALUE);
+    assertThat(CalcSum.sumExact(large, pool))
+        .isEqualTo(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(100_000)));
+  }
+
+  @Test
+  public void sumExact_overflowCompensated() throws Exception {
+    // Partial sums overflow, but not the total
+    long[] mixed = {Long.MAX_VALUE, Long.MAX_VALUE, -Long.MAX_VALUE, -Long.MAX_VALUE, 3};
+    assertThat(CalcSum.sumExact(mixed)).isEqualTo(BigInteger.valueOf(3));
+    assertThat(CalcSum.sumExact(new long[0])).isEqualTo(BigInteger.ZERO);
+  }
+
+  @Test
+  public void sumExact_matchesBigIntegerSum() throws Exception {
+    for (int i = 0; i < 50; i++) {
+      long[] array = random.longs(random.nextInt(50_000)).toArray();
+      BigInteger expected = BigInteger.ZERO;
+      for (long v : array) {
+        expected = expected.add(BigInteger.valueOf(v));
+      }
+      assertThat(CalcSum.sumExact(array, pool)).isEqualTo(expected);
+    }
+  }
+
+  /**
+   * Returns an array of random length and random values, on the whole
+   * range of {@code int}: the sums overflow, which must not change the
+   * result since the addition stays associative.
+   */
+  private int[] randomArray(int maxLength) {
+    return random.ints(random.nextInt(maxLength + 1)).toArray();
+  }
+
+  private static int sequentialSum(int[] array) {
+    int sum = 0;
+    for (int v : array) {
+      sum += v;
+    }
+    return sum;
+  }
+
+}
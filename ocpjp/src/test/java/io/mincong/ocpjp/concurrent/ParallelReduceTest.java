@@ -0,0 +1,86 @@
+package io.mincong.ocpjp.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Mincong Huang
+ */
+public class ParallelReduceTest {
+
+  /**
+   * Larger than the minimum threshold, so that the array is split.
+   */
+  private static final int SIZE = 100_000;
+
+  private final Random random = new Random(0);
+
+  private ForkJoinPool pool;
+
+  @Before
+  public void setUp() throws Exception {
+    pool = new ForkJoinPool(4);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void threshold() throws Exception {
+    assertThat(ParallelReduce.threshold(100, 4)).isEqualTo(ParallelReduce.MIN_THRESHOLD);
+    assertThat(ParallelReduce.threshold(1_600_000, 4)).isEqualTo(100_000);
+  }
+
+  @Test
+  public void reduce_int() throws Exception {
+    int[] values = random.ints(SIZE, -1000, 1000).toArray();
+    assertThat(ParallelReduce.reduce(values, 0, Integer::sum, pool))
+        .isEqualTo(IntStream.of(values).sum());
+    assertThat(ParallelReduce.reduce(values, Integer.MIN_VALUE, Math::max, pool))
+        .isEqualTo(IntStream.of(values).max().getAsInt());
+  }
+
+  @Test
+  public void reduce_long() throws Exception {
+    long[] values = random.longs(SIZE, -1000, 1000).toArray();
+    assertThat(ParallelReduce.reduce(values, 0L, Long::sum, pool))
+        .isEqualTo(Arrays.stream(values).sum());
+  }
+
+  @Test
+  public void reduce_double() throws Exception {
+    double[] values = random.doubles(SIZE).toArray();
+    // Floating point additions are not exactly associative
+    assertThat(ParallelReduce.reduce(values, 0.0, Double::sum, pool))
+        .isCloseTo(Arrays.stream(values).sum(), within(1e-6));
+  }
+
+  @Test
+  public void reduce_object() throws Exception {
+    BigInteger[] values = new BigInteger[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      values[i] = BigInteger.valueOf(i);
+    }
+    BigInteger expected = BigInteger.valueOf((long) SIZE * (SIZE - 1) / 2);
+    assertThat(ParallelReduce.reduce(values, BigInteger.ZERO, BigInteger::add, pool))
+        .isEqualTo(expected);
+  }
+
+  @Test
+  public void reduce_empty() throws Exception {
+    assertThat(ParallelReduce.reduce(new int[0], 0, Integer::sum)).isEqualTo(0);
+    assertThat(ParallelReduce.reduce(new long[0], 1L, (a, b) -> a * b)).isEqualTo(1L);
+  }
+
+}
@@ -0,0 +1,113 @@
+package io.mincong.ocpjp.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import io.mincong.ocpjp.concurrent.ParallelStats.DoubleSummary;
+import io.mincong.ocpjp.concurrent.ParallelStats.LongSummary;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Mincong Huang
+ */
+public class ParallelStatsTest {
+
+  /**
+   * Larger than the minimum threshold, so that the array is split.
+   */
+  private static final int SIZE = 100_000;
+
+  private final Random random = new Random(0);
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void tearDown() throws Exception {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void summarize_doubles() throws Exception {
+    // Large offset: the naive sum of squares would lose the variance
+    double[] values = random.doubles(SIZE).map(v -> 1e9 + v).toArray();
+    DoubleSummary summary = ParallelStats.summarize(values, pool);
+
+    double mean = DoubleStream.of(values).average().getAsDouble();
+    double variance = DoubleStream.of(values).map(v -> (v - mean) * (v - mean)).sum() / SIZE;
+    assertThat(summary.getCount()).isEqualTo(SIZE);
+    assertThat(summary.getMin()).isEqualTo(DoubleStream.of(values).min().getAsDouble());
+    assertThat(summary.getMax()).isEqualTo(DoubleStream.of(values).max().getAsDouble());
+    assertThat(summary.getMean()).isCloseTo(mean, within(1e-4));
+    assertThat(summary.getVariance()).isCloseTo(variance, within(1e-6));
+    assertThat(summary.getVariance()).isCloseTo(1.0 / 12, within(1e-2));
+  }
+
+  @Test
+  public void summarize_longs() throws Exception {
+    long[] values = random.longs(SIZE, -1_000, 1_000).toArray();
+    LongSummary summary = ParallelStats.summarize(values, pool);
+
+    double mean = LongStream.of(values).average().getAsDouble();
+    double sampleVariance =
+        LongStream.of(values).mapToDouble(v -> (v - mean) * (v - mean)).sum() / (SIZE - 1);
+    assertThat(summary.getCount()).isEqualTo(SIZE);
+    assertThat(summary.getMin()).isEqualTo(LongStream.of(values).min().getAsLong());
+    assertThat(summary.getMax()).isEqualTo(LongStream.of(values).max().getAsLong());
+    assertThat(summary.getMean()).isCloseTo(mean, within(1e-9));
+    assertThat(summary.getSampleVariance()).isCloseTo(sampleVariance, within(1e-6));
+  }
+
+  @Test
+  public void summarize_empty() throws Exception {
+    DoubleSummary summary = ParallelStats.summarize(new double[0], pool);
+    assertThat(summary.getCount()).isEqualTo(0L);
+    assertThat(summary.getMean()).isEqualTo(0.0);
+    assertThat(summary.getVariance()).isEqualTo(0.0);
+  }
+
+  @Test
+  public void topK_longs() throws Exception {
+    long[] values = random.longs(SIZE).toArray();
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+
+    long[] top = ParallelStats.topK(values, 10, pool);
+    assertThat(top).hasSize(10);
+    for (int i = 0; i < 10; i++) {
+      assertThat(top[i]).isEqualTo(sorted[SIZE - 1 - i]);
+    }
+  }
+
+  @Test
+  public void topK_doubles() throws Exception {
+    double[] values = random.doubles(SIZE).toArray();
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+
+    double[] top = ParallelStats.topK(values, 100, pool);
+    assertThat(top).hasSize(100);
+    for (int i = 0; i < 100; i++) {
+      assertThat(top[i]).isEqualTo(sorted[SIZE - 1 - i]);
+    }
+  }
+
+  @Test
+  public void topK_duplicatesAndSmallArrays() throws Exception {
+    assertThat(ParallelStats.topK(new long[] {3, 1, 3, 2, 3}, 4, pool))
+        .containsExactly(3L, 3L, 3L, 2L);
+    assertThat(ParallelStats.topK(new long[] {1, 2}, 5, pool)).containsExactly(2L, 1L);
+    assertThat(ParallelStats.topK(new long[] {1, 2}, 0, pool)).isEmpty();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void topK_negativeK() throws Exception {
+    ParallelStats.topK(new long[] {1}, -1, pool);
+  }
+
+}
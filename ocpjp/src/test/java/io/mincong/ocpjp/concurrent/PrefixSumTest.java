@@ -0,0 +1,61 @@
+package io.mincong.ocpjp.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Mincong Huang
+ */
+public class PrefixSumTest {
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void tearDown() throws Exception {
+    pool.shutdown();
+  }
+
+  @Test
+  public void scan_small() throws Exception {
+    assertThat(PrefixSum.scan(new int[] {1, 2, 3, 4}, pool))
+        .containsExactly(1L, 3L, 6L, 10L);
+    assertThat(PrefixSum.scan(new long[0], pool)).isEmpty();
+  }
+
+  @Test
+  public void scan_parallel() throws Exception {
+    // Larger than the parallel threshold, and not a power of two
+    long[] values = new Random(0).longs(PrefixSum.PARALLEL_THRESHOLD * 3 + 7, -100, 100)
+        .toArray();
+    long[] copy = values.clone();
+
+    long[] result = PrefixSum.scan(values, pool);
+    assertThat(values).isEqualTo(copy);
+    assertThat(result).isEqualTo(sequentialScan(values));
+  }
+
+  @Test
+  public void scanInPlace() throws Exception {
+    long[] values = new Random(0).longs(PrefixSum.PARALLEL_THRESHOLD * 2 + 1, -100, 100)
+        .toArray();
+    long[] expected = sequentialScan(values);
+
+    PrefixSum.scanInPlace(values, pool);
+    assertThat(values).isEqualTo(expected);
+  }
+
+  private static long[] sequentialScan(long[] values) {
+    long[] result = new long[values.length];
+    long sum = 0;
+    for (int i = 0; i < values.length; i++) {
+      sum += values[i];
+      result[i] = sum;
+    }
+    return result;
+  }
+
+}
@@ -2,6 +2,17 @@ package io.mincong.ocpjp.design_principles.singleton;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 
 /**
@@ -44,4 +55,70 @@ public class SingletonTest {
     assertThat(i1).isSameAs(i2);
   }
 
+  @Test
+  public void testGetInstance_holderSingleton() throws Exception {
+    HolderSingleton i1 = HolderSingleton.getInstance();
+    HolderSingleton i2 = HolderSingleton.getInstance();
+    assertThat(i1).isSameAs(i2);
+  }
+
+  @Test
+  public void testGetInstance_syncSingleton2Concurrent() throws Exception {
+    assertThat(getConcurrently(SyncSingleton2::getInstance)).hasSize(1);
+  }
+
+  @Test
+  public void testGet_singletonRegistry() throws Exception {
+    SingletonRegistry<String, List<String>> registry =
+        new SingletonRegistry<>(Collections::singletonList);
+    assertThat(registry.get("A")).isSameAs(registry.get("A"));
+    assertThat(registry.get("B")).isNotSameAs(registry.get("A"));
+    assertThat(registry.get("B")).containsExactly("B");
+    assertThat(registry.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void testGet_singletonRegistryConcurrent() throws Exception {
+    AtomicInteger created = new AtomicInteger();
+    SingletonRegistry<String, Object> registry = new SingletonRegistry<>(key -> {
+      created.incrementAndGet();
+      return new Object();
+    });
+    assertThat(getConcurrently(() -> registry.get("key"))).hasSize(1);
+    assertThat(created.get()).isEqualTo(1);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testGet_singletonRegistryNullInstance() throws Exception {
+    new SingletonRegistry<String, Object>(key -> null).get("key");
+  }
+
+  /**
+   * Gets the instance from many threads starting at the same time,
+   * and returns the distinct instances they got.
+   */
+  private static Set<Object> getConcurrently(Callable<Object> getInstance)
+      throws Exception {
+    int threads = 16;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Object>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          return getInstance.call();
+        }));
+      }
+      start.countDown();
+      Set<Object> instances = ConcurrentHashMap.newKeySet();
+      for (Future<Object> future : futures) {
+        instances.add(future.get());
+      }
+      return instances;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
 }
@@ -0,0 +1,75 @@
+package io.mincong.ocpjp.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.mincong.ocpjp.io.BatchCopy.Entry;
+import io.mincong.ocpjp.io.BatchCopy.Report;
+import io.mincong.ocpjp.io.BatchCopy.Result;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Mincong Huang
+ */
+public class BatchCopyTest {
+
+  @Rule
+  public TemporaryFolder temporaryDir = new TemporaryFolder();
+
+  @Test
+  public void copyAll() throws Exception {
+    File srcA = temporaryDir.newFolder("src", "a");
+    File srcB = temporaryDir.newFolder("src", "b");
+    File dst = temporaryDir.newFolder("dst");
+
+    List<Entry> entries = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      File dir = i % 2 == 0 ? srcA : srcB;
+      File source = new File(dir, "file-" + i + ".txt");
+      Files.write(source.toPath(), ("Content " + i).getBytes(UTF_8));
+      entries.add(new Entry(source, new File(dst, dir.getName() + "-" + i)));
+    }
+    Collections.shuffle(entries);
+
+    Report report = BatchCopy.copyAll(entries, 4);
+    assertThat(report.results).hasSize(20);
+    assertThat(report.failureCount()).isEqualTo(0L);
+    assertThat(report.totalBytes()).isEqualTo(entries.stream()
+        .mapToLong(e -> e.source.length()).sum());
+    for (Result r : report.results) {
+      assertThat(r.entry.target).hasSameContentAs(r.entry.source);
+    }
+
+    // Copies are ordered by directory
+    assertThat(report.results.get(0).entry.source.getParentFile())
+        .isEqualTo(srcA);
+    assertThat(report.results.get(19).entry.source.getParentFile())
+        .isEqualTo(srcB);
+  }
+
+  @Test
+  public void copyAll_failureReported() throws Exception {
+    File ok = temporaryDir.newFile("ok.txt");
+    File missing = new File(temporaryDir.getRoot(), "missing.txt");
+    List<Entry> entries = new ArrayList<>();
+    entries.add(new Entry(ok, new File(temporaryDir.getRoot(), "ok2.txt")));
+    entries.add(new Entry(missing, new File(temporaryDir.getRoot(), "x.txt")));
+
+    Report report = BatchCopy.copyAll(entries, 2);
+    assertThat(report.results).hasSize(2);
+    assertThat(report.failureCount()).isEqualTo(1L);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void copyAll_invalidParallelism() throws Exception {
+    BatchCopy.copyAll(Collections.emptyList(), 0);
+  }
+
+}
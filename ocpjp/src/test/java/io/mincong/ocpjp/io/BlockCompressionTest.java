@@ -0,0 +1,223 @@
+package io.mincong.ocpjp.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+
+/**
+ * @author Mincong Huang
+ */
+public class BlockCompressionTest {
+
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(5);
+
+  @Rule
+  public TemporaryFolder temporaryDir = new TemporaryFolder();
+
+  @Test
+  public void compressAndDecompress_file() throws Exception {
+    File source = temporaryDir.newFile("source.bin");
+    File compressed = temporaryDir.newFile("compressed.bin");
+    File target = temporaryDir.newFile("target.bin");
+    byte[] data = data(100_000);
+    Files.write(source.toPath(), data);
+
+    // Several blocks, the last one being partial
+    long size = BlockCompression.compress(source, compressed, 16 * 1024, 3);
+    assertThat(size).isEqualTo(compressed.length());
+    assertThat(size).isLessThan((long) data.length);
+    assertThat(BlockCompression.isCompressed(compressed)).isTrue();
+    assertThat(BlockCompression.isCompressed(source)).isFalse();
+
+    try (
+        InputStream in = BlockCompression.decompressingStream(
+            Files.newInputStream(compressed.toPath()));
+        OutputStream out = Files.newOutputStream(target.toPath())
+    ) {
+      byte[] buf = new byte[1000];
+      int len;
+      while ((len = in.read(buf)) != -1) {
+        out.write(buf, 0, len);
+      }
+    }
+    assertThat(target).hasSameContentAs(source);
+  }
+
+  @Test
+  public void compressAndDecompress_stream() throws Exception {
+    byte[] data = data(50_000);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = BlockCompression.compressingStream(bytes, 4096)) {
+      out.write(data[0]);
+      out.write(data, 1, data.length - 1);
+    }
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    try (InputStream in = BlockCompression.decompressingStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      int b;
+      while ((b = in.read()) != -1) {
+        result.write(b);
+      }
+    }
+    assertThat(result.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  public void compress_emptyFile() throws Exception {
+    File source = temporaryDir.newFile("source.bin");
+    File compressed = temporaryDir.newFile("compressed.bin");
+    BlockCompression.compress(source, compressed, 1024, 1);
+    assertThat(BlockCompression.isCompressed(compressed)).isTrue();
+    try (InputStream in = BlockCompression.decompressingStream(
+        Files.newInputStream(compressed.toPath()))) {
+      assertThat(in.read()).isEqualTo(-1);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void decompress_notCompressed() throws Exception {
+    BlockCompression.decompressingStream(new ByteArrayInputStream(new byte[8]));
+  }
+
+  @Test(expected = IOException.class)
+  public void decompress_corruptBlock() throws Exception {
+    // Only the zlib header: the inflater needs more input forever
+    readAll(stream(100, new byte[] {0x78, 0x01}));
+  }
+
+  @Test(expected = IOException.class)
+  public void decompress_truncatedBlock() throws Exception {
+    // The compressed data ends before the raw length is reached
+    byte[] data = data(10_000);
+    Deflater deflater = new Deflater();
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] compressed = new byte[data.length];
+    int length = deflater.deflate(compressed);
+    deflater.end();
+    readAll(stream(data.length, Arrays.copyOf(compressed, length / 2)));
+  }
+
+  @Test(expected = IOException.class)
+  public void decompress_truncatedFile() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = BlockCompression.compressingStream(bytes, 4096)) {
+      out.write(data(10_000));
+    }
+    byte[] file = bytes.toByteArray();
+    readAll(Arrays.copyOf(file, file.length - 10));
+  }
+
+  @Test(expected = EOFException.class)
+  public void decompress_truncatedBetweenBlocks() throws Exception {
+    byte[] file = compressedStream(3 * 1024, 1024);
+    // Cut right after the first block: no byte of the second one remains
+    readAll(Arrays.copyOf(file, endOfFirstBlock(file)));
+  }
+
+  @Test(expected = EOFException.class)
+  public void decompress_truncatedBlockHeader() throws Exception {
+    byte[] file = compressedStream(3 * 1024, 1024);
+    // Cut 2 bytes into the raw length of the second block
+    readAll(Arrays.copyOf(file, endOfFirstBlock(file) + 2));
+  }
+
+  @Test(expected = EOFException.class)
+  public void decompress_missingEndMarker() throws Exception {
+    byte[] file = compressedStream(3 * 1024, 1024);
+    readAll(Arrays.copyOf(file, file.length - Integer.BYTES));
+  }
+
+  @Test
+  public void compressingStream_closeTwice() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    OutputStream out = BlockCompression.compressingStream(bytes, 1024);
+    out.write(data(100));
+    out.close();
+    out.close();
+    readAll(bytes.toByteArray());
+  }
+
+  @Test(expected = IOException.class)
+  public void decompress_tooLongBlock() throws Exception {
+    readAll(stream(Integer.MAX_VALUE, new byte[] {0x78, 0x01}));
+  }
+
+  @Test(expected = IOException.class)
+  public void decompress_negativeLength() throws Exception {
+    readAll(stream(-2, new byte[0]));
+  }
+
+  /**
+   * Returns a compressed stream of one block, with the given raw length
+   * and compressed data.
+   */
+  private static byte[] stream(int rawLength, byte[] compressed) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(BlockCompression.MAGIC);
+    out.writeInt(rawLength);
+    out.writeInt(compressed.length);
+    out.write(compressed);
+    out.writeInt(BlockCompression.END_OF_STREAM);
+    return bytes.toByteArray();
+  }
+
+  private static byte[] compressedStream(int size, int blockSize) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = BlockCompression.compressingStream(bytes, blockSize)) {
+      out.write(data(size));
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Returns the offset following the first block: magic (4 bytes), raw
+   * length (4 bytes), compressed length (4 bytes), then compressed data.
+   */
+  private static int endOfFirstBlock(byte[] file) {
+    int compressedLength = (file[8] & 0xFF) << 24 | (file[9] & 0xFF) << 16
+        | (file[10] & 0xFF) << 8 | file[11] & 0xFF;
+    return 3 * Integer.BYTES + compressedLength;
+  }
+
+  private static void readAll(byte[] bytes) throws IOException {
+    try (InputStream in = BlockCompression.decompressingStream(
+        new ByteArrayInputStream(bytes))) {
+      byte[] buf = new byte[1000];
+      while (in.read(buf) != -1) {
+        // Discard
+      }
+    }
+  }
+
+  /**
+   * Generates compressible data: random words of a small alphabet.
+   */
+  private static byte[] data(int size) {
+    Random random = new Random(0);
+    byte[] data = new byte[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = (byte) ('a' + random.nextInt(4));
+    }
+    return data;
+  }
+
+}
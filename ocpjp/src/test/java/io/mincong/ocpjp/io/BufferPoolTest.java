@@ -0,0 +1,69 @@
+package io.mincong.ocpjp.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+/**
+ * @author Mincong Huang
+ */
+public class BufferPoolTest {
+
+  private static final int KB = 1024;
+
+  @Test
+  public void bufferSize_boundedByMinAndMax() throws Exception {
+    assertThat(BufferPool.bufferSize(0, 4 * KB)).isEqualTo(64 * KB);
+    assertThat(BufferPool.bufferSize(10, 4 * KB)).isEqualTo(64 * KB);
+    assertThat(BufferPool.bufferSize(10L * KB * KB, 4 * KB)).isEqualTo(KB * KB);
+  }
+
+  @Test
+  public void bufferSize_roundedToPowerOfTwo() throws Exception {
+    assertThat(BufferPool.bufferSize(65 * KB, 4 * KB)).isEqualTo(128 * KB);
+    assertThat(BufferPool.bufferSize(256 * KB, 4 * KB)).isEqualTo(256 * KB);
+    assertThat(BufferPool.bufferSize(257 * KB, 4 * KB)).isEqualTo(512 * KB);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void bufferSize_invalidBlockSize() throws Exception {
+    BufferPool.bufferSize(10, 0);
+  }
+
+  @Test
+  public void acquire_reusesReleasedBuffer() throws Exception {
+    BufferPool pool = new BufferPool(2);
+    ByteBuffer b1 = pool.acquire(100);
+    assertThat(b1.isDirect()).isTrue();
+    assertThat(b1.capacity()).isEqualTo(64 * KB);
+
+    b1.put((byte) 1);
+    pool.release(b1);
+    assertThat(pool.idleCount()).isEqualTo(1);
+
+    ByteBuffer b2 = pool.acquire(200);
+    assertThat(b2).isSameAs(b1);
+    assertThat(b2.position()).isEqualTo(0);
+    assertThat(pool.idleCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void release_limitedIdleBuffers() throws Exception {
+    BufferPool pool = new BufferPool(1);
+    ByteBuffer b1 = pool.acquire(100);
+    ByteBuffer b2 = pool.acquire(100);
+    pool.release(b1);
+    pool.release(b2);
+    assertThat(pool.idleCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void release_foreignBufferIgnored() throws Exception {
+    BufferPool pool = new BufferPool(1);
+    pool.release(ByteBuffer.allocate(64 * KB));
+    pool.release(ByteBuffer.allocateDirect(1000));
+    assertThat(pool.idleCount()).isEqualTo(0);
+  }
+
+}
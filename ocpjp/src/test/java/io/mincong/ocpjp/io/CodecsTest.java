@@ -0,0 +1,107 @@
+package io.mincong.ocpjp.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.mincong.ocpjp.design_principles.dao.Group;
+import io.mincong.ocpjp.design_principles.dao.Person;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+/**
+ * @author Mincong Huang
+ */
+public class CodecsTest {
+
+  private final CodecRegistry registry = CodecRegistry.defaultRegistry();
+
+  @Test
+  public void string_sizeMatchesEncoding() throws Exception {
+    String[] values = {"", "abc", "é", "中文", "😀", "\uD800", null};
+    for (String s : values) {
+      ByteBuffer buffer = ByteBuffer.allocate(Codecs.sizeOfString(s));
+      Codecs.putString(buffer, s);
+      assertThat(buffer.hasRemaining()).isFalse();
+
+      buffer.flip();
+      if (s == null || !s.equals("\uD800")) {
+        assertThat(Codecs.getString(buffer)).isEqualTo(s);
+      }
+    }
+  }
+
+  @Test
+  public void person_roundTrip() throws Exception {
+    Person p = new Person(1, "Tyrion", 39, null);
+    ByteBuffer buffer = ByteBuffer.allocate(registry.sizeOf(p));
+    registry.encode(p, buffer);
+    assertThat(buffer.hasRemaining()).isFalse();
+
+    buffer.flip();
+    Person decoded = registry.decode(buffer, Person.class);
+    assertThat(decoded.getId()).isEqualTo(1);
+    assertThat(decoded.getName()).isEqualTo("Tyrion");
+    assertThat(decoded.getAge()).isEqualTo(39);
+    assertThat(decoded.getAddress()).isNull();
+  }
+
+  @Test
+  public void group_roundTrip() throws Exception {
+    Group g = new Group();
+    g.setId(2);
+    g.setName("Lannister");
+    ByteBuffer buffer = ByteBuffer.allocate(registry.sizeOf(g));
+    registry.encode(g, buffer);
+
+    buffer.flip();
+    Group decoded = registry.decode(buffer, Group.class);
+    assertThat(decoded.getId()).isEqualTo(2);
+    assertThat(decoded.getName()).isEqualTo("Lannister");
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void decode_unexpectedType() throws Exception {
+    Group g = new Group();
+    ByteBuffer buffer = ByteBuffer.allocate(registry.sizeOf(g));
+    registry.encode(g, buffer);
+    buffer.flip();
+    registry.decode(buffer, Person.class);
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void decode_unknownTypeId() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+    buffer.putInt(99).flip();
+    registry.decode(buffer, Person.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void encode_unregisteredType() throws Exception {
+    registry.sizeOf("Hello");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void register_duplicatedTypeId() throws Exception {
+    registry.register(String.class, 1, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void register_duplicatedType() throws Exception {
+    registry.register(Person.class, 3, Codecs.PERSON);
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void getString_negativeLength() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+    buffer.putInt(-2).flip();
+    Codecs.getString(buffer);
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void getString_lengthExceedsBuffer() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + 3);
+    buffer.putInt(Integer.MAX_VALUE).put(new byte[3]).flip();
+    Codecs.getString(buffer);
+  }
+
+}
@@ -0,0 +1,54 @@
+package io.mincong.ocpjp.io;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.zip.Checksum;
+import org.junit.Test;
+
+/**
+ * @author Mincong Huang
+ */
+public class Crc32cTest {
+
+  /**
+   * Check value of CRC-32C, see RFC 3720, and "Catalogue of parametrised
+   * CRC algorithms" by Greg Cook.
+   */
+  private static final long CHECK = 0xE3069283L;
+
+  private final byte[] data = "123456789".getBytes(US_ASCII);
+
+  @Test
+  public void checkValue() throws Exception {
+    Crc32c crc = new Crc32c();
+    crc.update(data, 0, data.length);
+    assertThat(crc.getValue()).isEqualTo(CHECK);
+  }
+
+  @Test
+  public void checkValue_byteByByte() throws Exception {
+    Crc32c crc = new Crc32c();
+    for (byte b : data) {
+      crc.update(b);
+    }
+    assertThat(crc.getValue()).isEqualTo(CHECK);
+  }
+
+  @Test
+  public void reset() throws Exception {
+    Crc32c crc = new Crc32c();
+    crc.update(data, 0, 4);
+    crc.reset();
+    crc.update(data, 0, data.length);
+    assertThat(crc.getValue()).isEqualTo(CHECK);
+  }
+
+  @Test
+  public void create_sameValueAsFallback() throws Exception {
+    Checksum crc = Crc32c.create();
+    crc.update(data, 0, data.length);
+    assertThat(crc.getValue()).isEqualTo(CHECK);
+  }
+
+}
@@ -0,0 +1,76 @@
+package io.mincong.ocpjp.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Mincong Huang
+ */
+public class DirectorySummaryTest {
+
+  @Rule
+  public final TemporaryFolder temporaryDir = new TemporaryFolder();
+
+  @Test
+  public void bucketOf() throws Exception {
+    assertThat(DirectorySummary.bucketOf(0)).isEqualTo(0);
+    assertThat(DirectorySummary.bucketOf(1)).isEqualTo(1);
+    assertThat(DirectorySummary.bucketOf(2)).isEqualTo(2);
+    assertThat(DirectorySummary.bucketOf(3)).isEqualTo(2);
+    assertThat(DirectorySummary.bucketOf(1024)).isEqualTo(11);
+    assertThat(DirectorySummary.bucketOf(Long.MAX_VALUE)).isEqualTo(63);
+  }
+
+  @Test
+  public void addAndMerge() throws Exception {
+    DirectorySummary s1 = new DirectorySummary();
+    add(s1, "a.TXT", 10);
+    add(s1, ".gitignore", 0);
+    DirectorySummary s2 = new DirectorySummary();
+    add(s2, "b.txt", 10);
+    add(s2, "c.md", 1024);
+
+    s2.addUnreadableDirectory();
+
+    s1.merge(s2);
+    assertThat(s1.getUnreadableDirectories()).isEqualTo(1L);
+    assertThat(s1.getStats().getRegularFiles()).isEqualTo(4L);
+    assertThat(s1.getStats().getTotalBytes()).isEqualTo(1044L);
+    assertThat(s1.getExtensions()).hasSize(3);
+    assertThat(s1.getExtensions()).containsEntry("txt", 2L);
+    assertThat(s1.getExtensions()).containsEntry("md", 1L);
+    assertThat(s1.getExtensions()).containsEntry(DirectorySummary.NO_EXTENSION, 1L);
+    assertThat(s1.getSizeBucket(0)).isEqualTo(1L);
+    assertThat(s1.getSizeBucket(4)).isEqualTo(2L);
+    assertThat(s1.getSizeBucket(11)).isEqualTo(1L);
+  }
+
+  @Test
+  public void extensions_bounded() throws Exception {
+    DirectorySummary summary = new DirectorySummary();
+    for (int i = 0; i <= DirectorySummary.MAX_EXTENSIONS; i++) {
+      add(summary, "file.ext" + i, 1);
+    }
+    assertThat(summary.getExtensions()).hasSize(DirectorySummary.MAX_EXTENSIONS + 1);
+    assertThat(summary.getExtensions())
+        .containsEntry(DirectorySummary.OTHER_EXTENSIONS, 1L);
+  }
+
+  private void add(DirectorySummary summary, String name, int size) throws Exception {
+    File file = new File(temporaryDir.getRoot(), name);
+    Files.write(file.toPath(), new byte[size]);
+    Path path = file.toPath();
+    summary.add(path, Files.readAttributes(path, BasicFileAttributes.class,
+        LinkOption.NOFOLLOW_LINKS));
+    Files.delete(path);
+  }
+
+}
@@ -1,7 +1,11 @@
 package io.mincong.ocpjp.io;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -79,4 +83,160 @@ public class FileCountTest {
     FileCounter.countRegularFiles(temporaryDir.newFile("foo"));
   }
 
+  @Test
+  public void stats_correct() throws Exception {
+    Files.write(temporaryDir.newFile("a.txt").toPath(), new byte[10]);
+    Files.write(temporaryDir.newFile("b.txt").toPath(), new byte[20]);
+    File sub = temporaryDir.newFolder("sub");
+    temporaryDir.newFile("sub/c.txt");
+    Files.createSymbolicLink(new File(temporaryDir.getRoot(), "link").toPath(),
+        sub.toPath());
+
+    // Only entries in depth 1 are counted, the link is not followed.
+    FileStats stats = FileCounter.stats(temporaryDir.getRoot());
+    assertThat(stats.getRegularFiles()).isEqualTo(2L);
+    assertThat(stats.getDirectories()).isEqualTo(1L);
+    assertThat(stats.getSymbolicLinks()).isEqualTo(1L);
+    assertThat(stats.getTotalBytes()).isEqualTo(30L);
+  }
+
+  @Test
+  public void stats_invalidDir() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Not a directory");
+
+    FileCounter.stats(temporaryDir.newFile("foo"));
+  }
+
+  @Test
+  public void countRegularFilesRecursively_correct() throws Exception {
+    createTree();
+    long nbRegularFiles =
+        FileCounter.countRegularFilesRecursively(temporaryDir.getRoot());
+    assertThat(nbRegularFiles).isEqualTo(6L);
+  }
+
+  @Test
+  public void countDirectoriesRecursively_correct() throws Exception {
+    createTree();
+    long nbDirectories =
+        FileCounter.countDirectoriesRecursively(temporaryDir.getRoot());
+    assertThat(nbDirectories).isEqualTo(3L);
+  }
+
+  @Test
+  public void countRecursively_customPool() throws Exception {
+    createTree();
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      long nbTextFiles = FileCounter.countRecursively(temporaryDir.getRoot(),
+          (p, attributes) -> p.toString().endsWith(".txt"), pool);
+      assertThat(nbTextFiles).isEqualTo(5L);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void countRecursively_deletedSubdirectory() throws Exception {
+    createTree();
+    temporaryDir.newFolder("gone");
+    // Deleted once listed, before its own task lists it
+    long nbDirectories = FileCounter.countRecursively(temporaryDir.getRoot(),
+        (p, attributes) -> {
+          if (p.getFileName().toString().equals("gone")) {
+            p.toFile().delete();
+          }
+          return attributes.isDirectory();
+        }, ForkJoinPool.commonPool());
+    assertThat(nbDirectories).isEqualTo(4L);
+  }
+
+  @Test
+  public void countRecursively_unreadableSubdirectory() throws Exception {
+    createTree();
+    File sub1 = new File(temporaryDir.getRoot(), "sub1");
+    sub1.setReadable(false);
+    try {
+      assumeFalse("Cannot deny access, e.g. as root", sub1.canRead());
+      // sub1 is counted, but not its content: sub1/c.txt, sub1/sub3/*
+      long nbRegularFiles =
+          FileCounter.countRegularFilesRecursively(temporaryDir.getRoot());
+      assertThat(nbRegularFiles).isEqualTo(3L);
+    } finally {
+      sub1.setReadable(true);
+    }
+  }
+
+  @Test
+  public void summarize_correct() throws Exception {
+    createTree();
+    Files.write(new File(temporaryDir.getRoot(), "sub1/g.txt").toPath(), new byte[100]);
+
+    DirectorySummary summary =
+        FileCounter.summarize(temporaryDir.getRoot(), ForkJoinPool.commonPool());
+    assertThat(summary.getStats().getRegularFiles()).isEqualTo(7L);
+    assertThat(summary.getStats().getDirectories()).isEqualTo(3L);
+    assertThat(summary.getStats().getTotalBytes()).isEqualTo(100L);
+    assertThat(summary.getExtensions()).containsEntry("txt", 6L);
+    assertThat(summary.getExtensions()).containsEntry("md", 1L);
+    assertThat(summary.getSizeBucket(0)).isEqualTo(6L);
+    assertThat(summary.getSizeBucket(7)).isEqualTo(1L);
+  }
+
+  @Test
+  public void summarize_unreadableSubdirectory() throws Exception {
+    createTree();
+    File sub1 = new File(temporaryDir.getRoot(), "sub1");
+    sub1.setReadable(false);
+    try {
+      assumeFalse("Cannot deny access, e.g. as root", sub1.canRead());
+      DirectorySummary summary =
+          FileCounter.summarize(temporaryDir.getRoot(), ForkJoinPool.commonPool());
+      assertThat(summary.getUnreadableDirectories()).isEqualTo(1L);
+      assertThat(summary.getStats().getRegularFiles()).isEqualTo(3L);
+      assertThat(summary.getStats().getDirectories()).isEqualTo(2L);
+    } finally {
+      sub1.setReadable(true);
+    }
+  }
+
+  @Test
+  public void summarize_moreSubdirectoriesThanWindow() throws Exception {
+    // More subdirectories than forked at once by a task
+    for (int i = 0; i < 150; i++) {
+      temporaryDir.newFolder("sub" + i);
+      temporaryDir.newFile("sub" + i + "/a.txt");
+    }
+
+    DirectorySummary summary =
+        FileCounter.summarize(temporaryDir.getRoot(), ForkJoinPool.commonPool());
+    assertThat(summary.getStats().getRegularFiles()).isEqualTo(150L);
+    assertThat(summary.getStats().getDirectories()).isEqualTo(150L);
+    assertThat(summary.getExtensions()).containsEntry("txt", 150L);
+  }
+
+  @Test
+  public void countRegularFilesRecursively_invalidDir() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Not a directory");
+
+    FileCounter.countRegularFilesRecursively(temporaryDir.newFile("foo"));
+  }
+
+  /**
+   * Creates 6 regular files and 3 directories, on 3 levels.
+   */
+  private void createTree() throws Exception {
+    temporaryDir.newFile("a.txt");
+    temporaryDir.newFile("b.md");
+    temporaryDir.newFolder("sub1");
+    temporaryDir.newFolder("sub2");
+    temporaryDir.newFile("sub1/c.txt");
+    temporaryDir.newFile("sub2/d.txt");
+    temporaryDir.newFolder("sub1", "sub3");
+    temporaryDir.newFile("sub1/sub3/e.txt");
+    temporaryDir.newFile("sub1/sub3/f.txt");
+  }
+
 }
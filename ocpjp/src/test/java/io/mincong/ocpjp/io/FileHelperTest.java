@@ -3,10 +3,17 @@ package io.mincong.ocpjp.io;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import io.mincong.ocpjp.design_principles.dao.Person;
 import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
 import java.nio.file.Files;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.junit.Before;
@@ -67,6 +74,120 @@ public class FileHelperTest {
     assertThat(Files.readAllLines(target.toPath(), UTF_8)).hasSize(size);
   }
 
+  @Test
+  public void pooledCopy() throws Exception {
+    long count = FileHelper.pooledCopy(source, target);
+    assertThat(count).isEqualTo(source.length());
+    assertThat(target).hasSameContentAs(source);
+  }
+
+  @Test
+  public void checksummedCopy() throws Exception {
+    long crc = FileHelper.checksummedCopy(source, target, true);
+    assertThat(crc).isEqualTo(FileHelper.checksum(source));
+    assertThat(target).hasSameContentAs(source);
+  }
+
+  @Test
+  public void incrementalCopy() throws Exception {
+    FileHelper.copyByBytes(source, target);
+    byte[] data = Files.readAllBytes(source.toPath());
+    data[5_000] = 'X';
+    Files.write(source.toPath(), data);
+
+    // Only the modified block is rewritten
+    long written = FileHelper.incrementalCopy(source, target, 1024);
+    assertThat(written).isEqualTo(1024L);
+    assertThat(target).hasSameContentAs(source);
+  }
+
+  @Test
+  public void incrementalCopy_differentSizes() throws Exception {
+    // Target longer than source
+    Files.write(target.toPath(), new byte[(int) source.length() + 3_000]);
+    FileHelper.incrementalCopy(source, target, 1024);
+    assertThat(target).hasSameContentAs(source);
+
+    // Target shorter than source
+    Files.write(target.toPath(), new byte[10]);
+    FileHelper.incrementalCopy(source, target, 1024);
+    assertThat(target).hasSameContentAs(source);
+  }
+
+  @Test
+  public void channelCopy() throws Exception {
+    long count = FileHelper.channelCopy(source, target);
+    assertThat(count).isEqualTo(source.length());
+    assertThat(Files.readAllLines(target.toPath(), UTF_8)).hasSize(size);
+  }
+
+  @Test
+  public void channelCopy_emptyFile() throws Exception {
+    File empty = temporaryDir.newFile("empty.txt");
+    assertThat(FileHelper.channelCopy(empty, target)).isEqualTo(0L);
+    assertThat(target.length()).isEqualTo(0L);
+  }
+
+  @Test
+  public void mappedCopy() throws Exception {
+    // Window size smaller than the file, and not a divisor of it
+    long count = FileHelper.mappedCopy(source, target, 1000);
+    assertThat(count).isEqualTo(source.length());
+    assertThat(target).hasSameContentAs(source);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void mappedCopy_invalidWindowSize() throws Exception {
+    FileHelper.mappedCopy(source, target, 0);
+  }
+
+  @Test
+  public void parallelCopy() throws Exception {
+    long count = FileHelper.parallelCopy(source, target, 4_000, 4);
+    assertThat(count).isEqualTo(source.length());
+    assertThat(target).hasSameContentAs(source);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parallelCopy_invalidParallelism() throws Exception {
+    FileHelper.parallelCopy(source, target, 4_000, 0);
+  }
+
+  @Test
+  public void copyAsync() throws Exception {
+    AtomicLong progress = new AtomicLong();
+    CompletableFuture<Long> future =
+        FileHelper.copyAsync(source, target, progress::set);
+    assertThat(future.get(1, TimeUnit.SECONDS)).isEqualTo(source.length());
+    assertThat(progress.get()).isEqualTo(source.length());
+    assertThat(target).hasSameContentAs(source);
+  }
+
+  @Test
+  public void copyAsync_cancelled() throws Exception {
+    // Larger than the biggest pooled buffer, so that it requires
+    // several writes
+    File large = temporaryDir.newFile("large.bin");
+    Files.write(large.toPath(), new byte[3 * 1024 * 1024]);
+
+    // Cancel the copy after the first write
+    CompletableFuture<CompletableFuture<Long>> ref = new CompletableFuture<>();
+    CompletableFuture<Long> future = FileHelper.copyAsync(large, target,
+        count -> ref.join().cancel(true));
+    ref.complete(future);
+
+    assertThat(future.handle((v, e) -> e).get(1, TimeUnit.SECONDS))
+        .isInstanceOf(CancellationException.class);
+    assertThat(target.length()).isLessThan(large.length());
+  }
+
+  @Test
+  public void copyAsync_missingSource() throws Exception {
+    File missing = new File(temporaryDir.getRoot(), "missing.txt");
+    CompletableFuture<Long> future = FileHelper.copyAsync(missing, target);
+    assertThat(future.isCompletedExceptionally()).isTrue();
+  }
+
   @Test
   public void readAndWriteObject() throws Exception {
     FileHelper.write(source, "Hello");
@@ -78,4 +199,68 @@ public class FileHelperTest {
     assertThat(d).isEqualTo(LocalDate.of(2017, 10, 7));
   }
 
+  @Test
+  public void readAndWriteWithCodec() throws Exception {
+    CodecRegistry registry = CodecRegistry.defaultRegistry();
+    FileHelper.write(source, new Person(1, "Jon", 20, "Winterfell"), registry);
+    Person p = FileHelper.read(source, Person.class, registry);
+    assertThat(p.getId()).isEqualTo(1);
+    assertThat(p.getName()).isEqualTo("Jon");
+    assertThat(p.getAge()).isEqualTo(20);
+    assertThat(p.getAddress()).isEqualTo("Winterfell");
+  }
+
+  @Test(expected = StreamCorruptedException.class)
+  public void readWithCodec_invalidStringLength() throws Exception {
+    CodecRegistry registry = CodecRegistry.defaultRegistry();
+    FileHelper.write(source, new Person(1, "Jon", 20, "Winterfell"), registry);
+    // Type id (4 bytes), id (4 bytes), then the length of the name
+    byte[] bytes = Files.readAllBytes(source.toPath());
+    bytes[8] = 0x7F;
+    Files.write(source.toPath(), bytes);
+    FileHelper.read(source, Person.class, registry);
+  }
+
+  @Test(expected = StreamCorruptedException.class)
+  public void readWithCodec_unknownTypeId() throws Exception {
+    CodecRegistry registry = CodecRegistry.defaultRegistry();
+    FileHelper.write(source, new Person(1, "Jon", 20, "Winterfell"), registry);
+    byte[] bytes = Files.readAllBytes(source.toPath());
+    bytes[3] = 99;
+    Files.write(source.toPath(), bytes);
+    FileHelper.read(source, Person.class, registry);
+  }
+
+  @Test
+  public void compressedCopy() throws Exception {
+    File compressed = temporaryDir.newFile("compressed.bin");
+    long size = FileHelper.compressedCopy(source, compressed, 16 * 1024, 2);
+    assertThat(size).isLessThan(source.length());
+
+    long count = FileHelper.decompressedCopy(compressed, target);
+    assertThat(count).isEqualTo(source.length());
+    assertThat(target).hasSameContentAs(source);
+  }
+
+  @Test(expected = IOException.class)
+  public void decompressedCopy_notCompressed() throws Exception {
+    FileHelper.decompressedCopy(source, target);
+  }
+
+  @Test
+  public void readAndWriteCompressedObject() throws Exception {
+    FileHelper.writeCompressed(source, LocalDate.of(2017, 10, 7));
+    LocalDate d = FileHelper.read(source, LocalDate.class);
+    assertThat(d).isEqualTo(LocalDate.of(2017, 10, 7));
+  }
+
+  @Test
+  public void readAndWriteCompressedWithCodec() throws Exception {
+    CodecRegistry registry = CodecRegistry.defaultRegistry();
+    FileHelper.writeCompressed(source, new Person(1, "Jon", 20, "Winterfell"), registry);
+    Person p = FileHelper.read(source, Person.class, registry);
+    assertThat(p.getName()).isEqualTo("Jon");
+    assertThat(p.getAddress()).isEqualTo("Winterfell");
+  }
+
 }
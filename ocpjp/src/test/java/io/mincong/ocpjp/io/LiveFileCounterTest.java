@@ -0,0 +1,103 @@
+package io.mincong.ocpjp.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Mincong Huang
+ */
+public class LiveFileCounterTest {
+
+  @Rule
+  public final TemporaryFolder temporaryDir = new TemporaryFolder();
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void start_initialCounts() throws Exception {
+    temporaryDir.newFile("a.txt");
+    temporaryDir.newFile("b.txt");
+    temporaryDir.newFolder("sub");
+    temporaryDir.newFile("sub/c.txt");
+
+    try (LiveFileCounter counter = LiveFileCounter.start(temporaryDir.getRoot())) {
+      assertThat(counter.getRegularFiles()).isEqualTo(2L);
+      assertThat(counter.getDirectories()).isEqualTo(1L);
+    }
+  }
+
+  @Test
+  public void counts_updatedOnEvents() throws Exception {
+    File a = temporaryDir.newFile("a.txt");
+    try (LiveFileCounter counter = LiveFileCounter.start(temporaryDir.getRoot())) {
+      temporaryDir.newFile("b.txt");
+      temporaryDir.newFolder("sub");
+      awaitEquals(2, counter::getRegularFiles);
+      awaitEquals(1, counter::getDirectories);
+
+      Files.delete(a.toPath());
+      awaitEquals(1, counter::getRegularFiles);
+    }
+  }
+
+  @Test
+  public void resync() throws Exception {
+    LiveFileCounter counter = LiveFileCounter.start(temporaryDir.getRoot());
+    counter.close();
+    assertThat(counter.isLive()).isFalse();
+
+    temporaryDir.newFile("a.txt");
+    counter.resync();
+    assertThat(counter.getRegularFiles()).isEqualTo(1L);
+  }
+
+  @Test
+  public void counts_failWhenDirectoryDeleted() throws Exception {
+    File dir = temporaryDir.newFolder("watched");
+    try (LiveFileCounter counter = LiveFileCounter.start(dir)) {
+      assertThat(counter.isLive()).isTrue();
+      Files.delete(dir.toPath());
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+      while (counter.isLive() && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(counter.isLive()).isFalse();
+      thrown.expect(UncheckedIOException.class);
+      counter.getRegularFiles();
+    }
+  }
+
+  @Test
+  public void start_invalidDir() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Not a directory");
+
+    LiveFileCounter.start(temporaryDir.newFile("foo"));
+  }
+
+  /**
+   * Waits until the counter reaches the expected value. Events are
+   * delivered asynchronously, and some implementations of the watch
+   * service poll the file system every few seconds.
+   */
+  private static void awaitEquals(long expected, LongSupplier counter)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+    while (counter.getAsLong() != expected && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(counter.getAsLong()).isEqualTo(expected);
+  }
+
+}
@@ -0,0 +1,227 @@
+package io.mincong.ocpjp.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import io.mincong.ocpjp.design_principles.dao.Group;
+import io.mincong.ocpjp.design_principles.dao.Person;
+import java.io.EOFException;
+import java.io.File;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link RecordWriter} and {@link RecordReader}.
+ *
+ * @author Mincong Huang
+ */
+public class RecordStreamTest {
+
+  @Rule
+  public TemporaryFolder temporaryDir = new TemporaryFolder();
+
+  private final CodecRegistry registry = CodecRegistry.defaultRegistry();
+
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    file = temporaryDir.newFile("records.bin");
+  }
+
+  @Test
+  public void writeAndRead() throws Exception {
+    // More records than a single buffer can hold
+    try (RecordWriter writer = new RecordWriter(file, registry)) {
+      for (int i = 0; i < 10_000; i++) {
+        writer.append(new Person(i, "Person " + i, i % 100, "Address " + i));
+      }
+    }
+    try (RecordReader<Person> reader = new RecordReader<>(file, Person.class, registry)) {
+      int i = 0;
+      while (reader.hasNext()) {
+        Person p = reader.next();
+        assertThat(p.getId()).isEqualTo(i);
+        assertThat(p.getName()).isEqualTo("Person " + i);
+        i++;
+      }
+      assertThat(i).isEqualTo(10_000);
+    }
+  }
+
+  @Test
+  public void append_existingFile() throws Exception {
+    try (RecordWriter writer = new RecordWriter(file, registry)) {
+      writer.append(group(1));
+    }
+    try (RecordWriter writer = new RecordWriter(file, registry)) {
+      writer.append(group(2));
+    }
+    try (Stream<Group> groups = new RecordReader<>(file, Group.class, registry).stream()) {
+      List<Integer> ids = groups.map(Group::getId).collect(Collectors.toList());
+      assertThat(ids).containsExactly(1, 2);
+    }
+  }
+
+  @Test
+  public void writeAndRead_recordLargerThanBuffer() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100_000; i++) {
+      sb.append('x');
+    }
+    try (RecordWriter writer = new RecordWriter(file, registry)) {
+      writer.append(new Person(1, sb.toString(), 1, null));
+      writer.append(new Person(2, "small", 2, null));
+    }
+    try (RecordReader<Person> reader = new RecordReader<>(file, Person.class, registry)) {
+      assertThat(reader.next().getName()).hasSize(100_000);
+      assertThat(reader.next().getName()).isEqualTo("small");
+      assertThat(reader.hasNext()).isFalse();
+    }
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void next_emptyFile() throws Exception {
+    try (RecordReader<Person> reader = new RecordReader<>(file, Person.class, registry)) {
+      reader.next();
+    }
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void next_truncatedRecord() throws Exception {
+    try (RecordWriter writer = new RecordWriter(file, registry)) {
+      writer.append(group(1));
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      channel.truncate(file.length() - 1);
+    }
+    try (RecordReader<Group> reader = new RecordReader<>(file, Group.class, registry)) {
+      reader.next();
+    }
+  }
+
+  @Test
+  public void hasNext_truncatedLength() throws Exception {
+    try (RecordWriter writer = new RecordWriter(file, registry)) {
+      writer.append(group(1));
+    }
+    appendRaw(ByteBuffer.allocate(3));
+    try (RecordReader<Group> reader = new RecordReader<>(file, Group.class, registry)) {
+      assertThat(reader.next().getId()).isEqualTo(1);
+      reader.hasNext();
+      fail("Expected UncheckedIOException");
+    } catch (UncheckedIOException e) {
+      assertThat(e.getCause()).isInstanceOf(EOFException.class);
+    }
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void next_negativeLength() throws Exception {
+    ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+    length.putInt(-1).flip();
+    appendRaw(length);
+    try (RecordReader<Group> reader = new RecordReader<>(file, Group.class, registry)) {
+      reader.next();
+    }
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void next_tooLongLength() throws Exception {
+    ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+    length.putInt(RecordWriter.MAX_RECORD_SIZE + 1).flip();
+    appendRaw(length);
+    try (RecordReader<Group> reader = new RecordReader<>(file, Group.class, registry)) {
+      reader.next();
+    }
+  }
+
+  @Test
+  public void next_recordShorterThanValue() throws Exception {
+    // Type id and group id, but no name
+    ByteBuffer record = ByteBuffer.allocate(Integer.BYTES * 3);
+    record.putInt(Integer.BYTES * 2).putInt(2).putInt(1).flip();
+    appendRaw(record);
+    try (RecordReader<Group> reader = new RecordReader<>(file, Group.class, registry)) {
+      reader.next();
+      fail("Expected UncheckedIOException");
+    } catch (UncheckedIOException e) {
+      assertThat(e.getCause()).isInstanceOf(EOFException.class);
+    }
+  }
+
+  @Test
+  public void next_recordLongerThanValue() throws Exception {
+    // Type id, group id and null name, followed by 2 unexpected bytes
+    ByteBuffer record = ByteBuffer.allocate(Integer.BYTES * 4 + 2);
+    record.putInt(Integer.BYTES * 3 + 2).putInt(2).putInt(1).putInt(-1).putShort((short) 0);
+    record.flip();
+    appendRaw(record);
+    try (RecordReader<Group> reader = new RecordReader<>(file, Group.class, registry)) {
+      reader.next();
+      fail("Expected UncheckedIOException");
+    } catch (UncheckedIOException e) {
+      assertThat(e.getCause()).isInstanceOf(StreamCorruptedException.class);
+    }
+  }
+
+  @Test
+  public void append_codecSizeMismatch() throws Exception {
+    CodecRegistry registry = CodecRegistry.defaultRegistry();
+    registry.register(String.class, 3, new Codec<String>() {
+      @Override
+      public int sizeOf(String value) {
+        // Underestimated: the value is encoded as a long
+        return Integer.BYTES;
+      }
+
+      @Override
+      public void encode(String value, ByteBuffer buffer) {
+        buffer.putLong(value.length());
+      }
+
+      @Override
+      public String decode(ByteBuffer buffer) {
+        return String.valueOf(buffer.getLong());
+      }
+    });
+    try (RecordWriter writer = new RecordWriter(file, registry)) {
+      writer.append(group(1));
+      try {
+        writer.append("invalid");
+        fail("Expected IllegalStateException");
+      } catch (IllegalStateException e) {
+        // The partial record is discarded
+      }
+      writer.append(group(2));
+    }
+    try (Stream<Group> groups = new RecordReader<>(file, Group.class, registry).stream()) {
+      List<Integer> ids = groups.map(Group::getId).collect(Collectors.toList());
+      assertThat(ids).containsExactly(1, 2);
+    }
+  }
+
+  private void appendRaw(ByteBuffer bytes) throws Exception {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.APPEND)) {
+      channel.write(bytes);
+    }
+  }
+
+  private static Group group(int id) {
+    Group g = new Group();
+    g.setId(id);
+    g.setName("Group " + id);
+    return g;
+  }
+
+}
@@ -0,0 +1,123 @@
+package io.mincong.ocpjp.threads;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * @author Mincong Huang
+ */
+public class ReadinessGateTest {
+
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(5);
+
+  private final ReadinessGate gate = new ReadinessGate();
+
+  @Test
+  public void await_open() throws Exception {
+    assertThat(gate.isOpen()).isFalse();
+    assertThat(gate.open()).isTrue();
+    assertThat(gate.open()).isFalse();
+
+    // Returns immediately: no wake-up can be missed
+    gate.await();
+    assertThat(gate.await(0, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void await_timeout() throws Exception {
+    assertThat(gate.await(10, TimeUnit.MILLISECONDS)).isFalse();
+  }
+
+  @Test
+  public void await_manyWaiters() throws Exception {
+    int count = 100;
+    AtomicInteger released = new AtomicInteger();
+    List<Thread> waiters = startWaiters(count, released);
+    awaitQueued(count);
+    assertThat(released.get()).isEqualTo(0);
+
+    gate.open();
+    for (Thread t : waiters) {
+      t.join();
+    }
+    assertThat(released.get()).isEqualTo(count);
+  }
+
+  @Test
+  public void reset() throws Exception {
+    assertThat(gate.reset()).isFalse();
+    gate.open();
+    assertThat(gate.reset()).isTrue();
+    assertThat(gate.isOpen()).isFalse();
+    assertThat(gate.getGeneration()).isEqualTo(1);
+    assertThat(gate.await(10, TimeUnit.MILLISECONDS)).isFalse();
+
+    gate.open();
+    assertThat(gate.await(0, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void reset_waitersOfPreviousGenerationReleased() throws Exception {
+    AtomicInteger released = new AtomicInteger();
+    List<Thread> waiters = startWaiters(10, released);
+    awaitQueued(10);
+
+    // Closed again before the waiters wake up: they must not block
+    gate.open();
+    gate.reset();
+    for (Thread t : waiters) {
+      t.join();
+    }
+    assertThat(released.get()).isEqualTo(10);
+    assertThat(gate.isOpen()).isFalse();
+  }
+
+  @Test
+  public void await_interrupted() throws Exception {
+    CountDownLatch interrupted = new CountDownLatch(1);
+    Thread waiter = new Thread(() -> {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+    waiter.start();
+    awaitQueued(1);
+    waiter.interrupt();
+    assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+  }
+
+  private List<Thread> startWaiters(int count, AtomicInteger released) {
+    List<Thread> waiters = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Thread t = new Thread(() -> {
+        try {
+          gate.await();
+          released.incrementAndGet();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      waiters.add(t);
+      t.start();
+    }
+    return waiters;
+  }
+
+  private void awaitQueued(int count) throws InterruptedException {
+    while (gate.getWaiterCount() < count) {
+      Thread.sleep(1);
+    }
+  }
+
+}
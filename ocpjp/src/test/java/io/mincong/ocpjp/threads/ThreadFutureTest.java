@@ -0,0 +1,82 @@
+package io.mincong.ocpjp.threads;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import io.mincong.ocpjp.threads.ThreadFuture.NightKing;
+import io.mincong.ocpjp.threads.ThreadFuture.WhiteWalker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * @author Mincong Huang
+ */
+public class ThreadFutureTest {
+
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(5);
+
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+  @After
+  public void tearDown() throws Exception {
+    timer.shutdownNow();
+  }
+
+  @Test
+  public void walkersFollowKing() throws Exception {
+    NightKing king = new NightKing();
+    List<CompletableFuture<Boolean>> walkers = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      walkers.add(new WhiteWalker("W" + i, king.whenReady()).follow());
+    }
+    assertThat(walkers.get(0).isDone()).isFalse();
+
+    king.start();
+    for (CompletableFuture<Boolean> walker : walkers) {
+      assertThat(walker.get()).isTrue();
+    }
+  }
+
+  @Test
+  public void walkersDeadOnTimeout() throws Exception {
+    // The king never starts
+    NightKing king = new NightKing();
+    CompletableFuture<NightKing> readiness =
+        ThreadFuture.withTimeout(king.whenReady(), 10, TimeUnit.MILLISECONDS, timer);
+    assertThat(new WhiteWalker("A", readiness).follow().get()).isFalse();
+  }
+
+  @Test
+  public void withTimeout() throws Exception {
+    CompletableFuture<String> never = new CompletableFuture<>();
+    try {
+      ThreadFuture.withTimeout(never, 10, TimeUnit.MILLISECONDS, timer).get();
+      fail("The future should time out");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(TimeoutException.class);
+    }
+
+    CompletableFuture<String> done = CompletableFuture.completedFuture("OK");
+    assertThat(ThreadFuture.withTimeout(done, 1, TimeUnit.SECONDS, timer).get())
+        .isEqualTo("OK");
+  }
+
+  @Test
+  public void whenReady_cannotBeCompletedByCaller() throws Exception {
+    NightKing king = new NightKing();
+    king.whenReady().toCompletableFuture().complete(king);
+    assertThat(king.whenReady().toCompletableFuture().isDone()).isFalse();
+  }
+
+}
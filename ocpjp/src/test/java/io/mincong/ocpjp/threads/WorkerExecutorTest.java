@@ -0,0 +1,64 @@
+package io.mincong.ocpjp.threads;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * @author Mincong Huang
+ */
+public class WorkerExecutorTest {
+
+  @Test
+  public void platform() throws Exception {
+    runWorkers(WorkerExecutor.platform());
+  }
+
+  @Test
+  public void virtual() throws Exception {
+    if (WorkerExecutor.isVirtualSupported()) {
+      runWorkers(WorkerExecutor.virtual());
+    } else {
+      try {
+        WorkerExecutor.virtual();
+        fail("Virtual threads should not be supported before JDK 21");
+      } catch (UnsupportedOperationException e) {
+        assertThat(e.getMessage()).contains("JDK 21");
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void of_unknown() throws Exception {
+    WorkerExecutor.of("green");
+  }
+
+  /**
+   * Runs workers which all wait for the same signal, so they must run
+   * concurrently, each in its own thread.
+   */
+  private static void runWorkers(WorkerExecutor executor) {
+    int count = 100;
+    CountDownLatch waiting = new CountDownLatch(count);
+    AtomicInteger completed = new AtomicInteger();
+    try (WorkerExecutor e = executor) {
+      for (int i = 0; i < count; i++) {
+        e.submit(() -> {
+          waiting.countDown();
+          try {
+            waiting.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+          completed.incrementAndGet();
+        });
+      }
+    }
+    assertThat(completed.get()).isEqualTo(count);
+  }
+
+}